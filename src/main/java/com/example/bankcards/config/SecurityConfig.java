@@ -60,6 +60,9 @@ public class SecurityConfig {
                                 .requestMatchers(BLACK_LIST).permitAll()
                                 .requestMatchers(HttpMethod.POST, "/auths/register-employee").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/auths/login").permitAll()
+                                //probes stay open; metrics and the rest of actuator are for admins only
+                                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                                .requestMatchers("/actuator/**").hasRole("ADMIN")
 //                                .requestMatchers("/api/v1/cards/**").permitAll()
                                 .anyRequest()
                                 .authenticated())
@@ -78,8 +81,7 @@ public class SecurityConfig {
             "/webjars/**",
             "/swagger-resources/**",
             "/v3/api-docs/**",
-            "/v2/api-docs",
-            "/actuator/**"
+            "/v2/api-docs"
     };
     private static final String[] BLACK_LIST = {
             "/auths/login/**"
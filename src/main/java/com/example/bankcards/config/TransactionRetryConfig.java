@@ -0,0 +1,25 @@
+package com.example.bankcards.config;
+
+import com.example.bankcards.util.TransactionRetryTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class TransactionRetryConfig {
+
+    @Bean
+    public TransactionRetryTemplate transactionRetryTemplate(
+            PlatformTransactionManager transactionManager,
+            @Value("${bank.transfer.retry.max-attempts:5}") int maxAttempts,
+            @Value("${bank.transfer.retry.initial-backoff-ms:10}") long initialBackoffMs,
+            @Value("${bank.transfer.retry.max-backoff-ms:200}") long maxBackoffMs) {
+        return new TransactionRetryTemplate(
+                new TransactionTemplate(transactionManager),
+                maxAttempts,
+                initialBackoffMs,
+                maxBackoffMs);
+    }
+}
@@ -5,12 +5,16 @@ import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.filter.CardFilter;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.util.RestConstants;
+import jakarta.validation.Valid;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/api/v1/cars")
@@ -51,16 +55,25 @@ public class CardController {
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @PostMapping("/fill-card")
     public ApiResponse fillCard(@RequestParam(value = "card") String card,
-                                @RequestParam(value = "amount") BigDecimal amount) {
-        return this.cardService.fillCard(card, amount);
+                                @RequestParam(value = "amount") BigDecimal amount,
+                                @RequestHeader(value = RestConstants.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return this.cardService.fillCard(card, amount, idempotencyKey);
     }
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
     @PostMapping("/transfer-money")
     public ApiResponse transferMoneyBetweenCards(@RequestParam(value = "cardFrom") String from,
                                                  @RequestParam(value = "cardTo") String to,
-                                                 @RequestParam(value = "amount") BigDecimal amount) {
-        return this.cardService.transferMoneyBetweenCards(from, to, amount);
+                                                 @RequestParam(value = "amount") BigDecimal amount,
+                                                 @RequestHeader(value = RestConstants.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return this.cardService.transferMoneyBetweenCards(from, to, amount, idempotencyKey);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/transfer-money/batch")
+    public ApiResponse transferMoneyBatch(@Valid @RequestBody CardDto.BatchTransferDto dto,
+                                          @RequestHeader(value = RestConstants.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        return this.cardService.transferMoneyBatch(dto.getTransfers(), idempotencyKey);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -70,6 +83,14 @@ public class CardController {
         return this.cardService.changeCardStatus(id, cardStatus);
     }
 
+    //hot merchant or payroll cards: spread incoming credits over several balance rows, 0 turns it off
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/set-balance-shards/{cardId}")
+    public ApiResponse setBalanceShards(@PathVariable(value = "cardId") Long id,
+                                        @RequestParam(value = "shards") int shards) {
+        return this.cardService.setBalanceShards(id, shards);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/get-all-cards")
     public ApiResponse getAllCards(
@@ -77,12 +98,18 @@ public class CardController {
             @RequestParam(value = "status", required = false) CardStatus status,
             @RequestParam(value = "deleted", required = false, defaultValue = "false") Boolean deleted,
             @RequestParam(value = "int", defaultValue = "0") int page,
-            @RequestParam(value = "size", defaultValue = "10") int size) {
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal) {
         CardFilter filter = new CardFilter();
         filter.setKeyword(keyword);
         filter.setStatus(status);
         filter.setDeleted(deleted);
-        return this.cardService.getAllCards(filter, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt")));
+        //any cursor, empty for the first page, switches to keyset pagination
+        if (cursor != null) {
+            return this.cardService.getAllCards(filter, cursor, size, withTotal);
+        }
+        return this.cardService.getAllCards(filter, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
     }
 
     @PreAuthorize("hasAnyRole('USER','ADMIN')")
@@ -91,6 +118,13 @@ public class CardController {
         return this.cardService.getBalance(id);
     }
 
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @GetMapping("/get-balance-at")
+    public ApiResponse getBalanceAt(@RequestParam(value = "cardId") Long id,
+                                    @RequestParam(value = "at") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return this.cardService.getBalanceAt(id, at);
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/delete-card/{cardId}")
     public ApiResponse deleteCard(@PathVariable(name = "cardId") Long cardId) {
@@ -0,0 +1,47 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.service.HoldService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+
+@RestController
+@RequestMapping("/api/v1/holds")
+public class HoldController {
+
+    private final HoldService holdService;
+
+    public HoldController(HoldService holdService) {
+        this.holdService = holdService;
+    }
+
+    //reserves the amount on cardFrom; it is moved to cardTo on capture or freed on release or expiry
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/authorize")
+    public ApiResponse authorize(@RequestParam(value = "cardFrom") String from,
+                                 @RequestParam(value = "cardTo") String to,
+                                 @RequestParam(value = "amount") BigDecimal amount) {
+        return this.holdService.authorize(from, to, amount);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/capture/{holdId}")
+    public ApiResponse capture(@PathVariable(value = "holdId") Long holdId,
+                               @RequestParam(value = "amount", required = false) BigDecimal amount) {
+        return this.holdService.capture(holdId, amount);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/release/{holdId}")
+    public ApiResponse release(@PathVariable(value = "holdId") Long holdId) {
+        return this.holdService.release(holdId);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @GetMapping("/get/{holdId}")
+    public ApiResponse getHold(@PathVariable(value = "holdId") Long holdId) {
+        return this.holdService.getHold(holdId);
+    }
+}
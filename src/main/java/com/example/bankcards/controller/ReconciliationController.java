@@ -0,0 +1,35 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.service.ReconciliationService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/reconciliation")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/run")
+    public ApiResponse runReconciliation() {
+        return this.reconciliationService.runReconciliation();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/mismatches")
+    public ApiResponse getMismatches(@RequestParam(value = "runId", required = false) UUID runId,
+                                     @RequestParam(value = "page", defaultValue = "0") int page,
+                                     @RequestParam(value = "size", defaultValue = "50") int size) {
+        return this.reconciliationService.getMismatches(runId, PageRequest.of(page, size, Sort.by("cardId")));
+    }
+}
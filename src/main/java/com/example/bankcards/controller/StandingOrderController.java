@@ -0,0 +1,43 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.StandingOrderDto;
+import com.example.bankcards.service.StandingOrderService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/standing-orders")
+public class StandingOrderController {
+
+    private final StandingOrderService standingOrderService;
+
+    public StandingOrderController(StandingOrderService standingOrderService) {
+        this.standingOrderService = standingOrderService;
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/create")
+    public ApiResponse createStandingOrder(@RequestBody StandingOrderDto.CreateStandingOrderDto dto) {
+        return this.standingOrderService.createStandingOrder(dto);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @PostMapping("/cancel/{id}")
+    public ApiResponse cancelStandingOrder(@PathVariable(value = "id") Long id) {
+        return this.standingOrderService.cancelStandingOrder(id);
+    }
+
+    @PreAuthorize("hasAnyRole('USER','ADMIN')")
+    @GetMapping("/get-own")
+    public ApiResponse getMyStandingOrders() {
+        return this.standingOrderService.getMyStandingOrders();
+    }
+
+    //runs the due orders now instead of waiting for the next poll
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/run")
+    public ApiResponse runDueOrders() {
+        return this.standingOrderService.runDueOrders();
+    }
+}
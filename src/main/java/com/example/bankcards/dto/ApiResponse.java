@@ -23,5 +23,7 @@ public class ApiResponse {
     private Object data;
     private Long elements;
     private Integer pages;
+    //keyset pagination: pass back as cursor for the next page, absent on the last one
+    private String nextCursor;
 
 }
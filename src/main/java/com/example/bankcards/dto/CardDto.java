@@ -2,16 +2,25 @@ package com.example.bankcards.dto;
 
 import com.example.bankcards.entity.enums.CardStatus;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.RestConstants;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.http.HttpStatus;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+
 @Builder
 @Data
 public class CardDto {
@@ -23,6 +32,8 @@ public class CardDto {
     private LocalDate expiryDate;
     private CardStatus status;
     private BigDecimal balance;
+    //balance less the funds reserved by open holds
+    private BigDecimal availableBalance;
     private String cardNumber;
 
     private LocalDateTime createdAt;
@@ -64,6 +75,7 @@ public class CardDto {
         private LocalDate expiryDate;
         private CardStatus status;
         private BigDecimal balance;
+        private BigDecimal availableBalance;
 
         private LocalDateTime createdAt;
         private LocalDateTime updatedAt;
@@ -72,5 +84,39 @@ public class CardDto {
         private Boolean deleted;
     }
 
+    @Data
+    public static class TransferDto {
+
+        @NotBlank(message = "Card from is required")
+        private String cardFrom;
+
+        @NotBlank(message = "Card to is required")
+        private String cardTo;
+
+        @NotNull(message = "Amount is required")
+        @Positive(message = "Amount must be positive")
+        @Digits(integer = 17, fraction = Money.SCALE, message = "Amount must have at most " + Money.SCALE + " decimal places")
+        private BigDecimal amount;
+    }
+
+    //null entries pass validation and are rejected per item by the service
+    @Data
+    public static class BatchTransferDto {
+
+        @NotEmpty(message = "Transfers are required")
+        @Size(max = RestConstants.MAX_BATCH_TRANSFERS, message = "Batch must contain at most " + RestConstants.MAX_BATCH_TRANSFERS + " transfers")
+        private List<@Valid TransferDto> transfers;
+    }
+
+    //outcome of one item of a batch transfer, index is its position in the request
+    @Builder
+    @Data
+    public static class TransferResultDto {
+
+        private int index;
+        private HttpStatus status;
+        private String message;
+    }
+
 
 }
@@ -0,0 +1,18 @@
+package com.example.bankcards.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Builder
+@Data
+public class CardExpiryDto {
+
+    private LocalDate runDate;
+    private long expired;
+    private int ranges;
+    private long lastId;
+    private boolean completed;
+    private long elapsedMs;
+}
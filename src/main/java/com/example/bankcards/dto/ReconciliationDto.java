@@ -0,0 +1,31 @@
+package com.example.bankcards.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Builder
+@Data
+public class ReconciliationDto {
+
+    private UUID runId;
+    private long cardsChecked;
+    private long mismatches;
+    private long elapsedMs;
+    private int parallelism;
+
+    @Builder
+    @Data
+    public static class MismatchDto {
+
+        private UUID runId;
+        private Long cardId;
+        private BigDecimal cardBalance;
+        private BigDecimal ledgerBalance;
+        private BigDecimal difference;
+        private LocalDateTime createdAt;
+    }
+}
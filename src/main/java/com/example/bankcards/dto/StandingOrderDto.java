@@ -0,0 +1,62 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.enums.StandingOrderFrequency;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Builder
+@Data
+public class StandingOrderDto {
+
+    private Long id;
+    private Long fromCardId;
+    private Long toCardId;
+    private BigDecimal amount;
+    private StandingOrderFrequency frequency;
+    private StandingOrderStatus status;
+    private LocalDateTime nextRunAt;
+    private LocalDateTime lastRunAt;
+    private String lastStatus;
+    private String lastMessage;
+    private LocalDateTime createdAt;
+    private Long createdBy;
+
+    @Data
+    public static class CreateStandingOrderDto {
+
+        @NotBlank(message = "Card from is required")
+        private String cardFrom;
+
+        @NotBlank(message = "Card to is required")
+        private String cardTo;
+
+        @NotNull(message = "Amount is required")
+        private BigDecimal amount;
+
+        @NotNull(message = "Frequency is required")
+        private StandingOrderFrequency frequency;
+
+        //first payment, now when empty
+        private LocalDateTime firstRunAt;
+    }
+
+    //one scheduler run: lag is how long after their due time the orders were paid
+    @Builder
+    @Data
+    public static class RunDto {
+
+        private int claimed;
+        private int succeeded;
+        private int failed;
+        private long elapsedMs;
+        private double ordersPerSecond;
+        private long averageLagMs;
+        private long maxLagMs;
+    }
+}
@@ -4,11 +4,12 @@ import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -26,7 +27,8 @@ public class CardMapper {
                 .ownerName(card.getOwnerName())
                 .expiryDate(card.getExpiryDate())
                 .status(card.getStatus())
-                .balance(card.getBalance())
+                .balance(card.getTotalBalance().toBigDecimal())
+                .availableBalance(card.getAvailableBalance().toBigDecimal())
                 .createdAt(card.getCreatedAt())
                 .updatedAt(card.getUpdatedAt())
                 .createdBy(card.getCreatedBy())
@@ -35,6 +37,23 @@ public class CardMapper {
                 .build();
     }
 
+    public CardDto toDto(CardRepository.CardRow row) {
+        return CardDto.builder()
+                .id(row.id())
+                .maskedNumber(row.lastFourDigits())
+                .ownerName(row.ownerName())
+                .expiryDate(row.expiryDate())
+                .status(row.status())
+                .balance(row.totalBalance().toBigDecimal())
+                .availableBalance(row.availableBalance().toBigDecimal())
+                .createdAt(row.createdAt())
+                .updatedAt(row.updatedAt())
+                .createdBy(row.createdBy())
+                .updatedBy(row.updatedBy())
+                .deleted(row.deleted())
+                .build();
+    }
+
     public CardDto.CardDetailsDto toDto(Card card, String cardNumber) {
         return CardDto.CardDetailsDto.builder()
                 .id(card.getId())
@@ -42,7 +61,8 @@ public class CardMapper {
                 .ownerName(card.getOwnerName())
                 .expiryDate(card.getExpiryDate())
                 .status(card.getStatus())
-                .balance(card.getBalance())
+                .balance(card.getTotalBalance().toBigDecimal())
+                .availableBalance(card.getAvailableBalance().toBigDecimal())
                 .createdAt(card.getCreatedAt())
                 .updatedAt(card.getUpdatedAt())
                 .createdBy(card.getCreatedBy())
@@ -60,7 +80,7 @@ public class CardMapper {
                 .ownerName(owner.getFullName())
                 .expiryDate(LocalDate.now().plusYears(5))
                 .status(CardStatus.ACTIVE)
-                .balance(BigDecimal.ZERO)
+                .balance(Money.ZERO)
                 .build();
     }
 
@@ -74,6 +94,16 @@ public class CardMapper {
                 .toList();
     }
 
+    public List<CardDto> toRowDto(List<CardRepository.CardRow> rows) {
+        if (rows == null) {
+            return new ArrayList<>();
+        }
+        return rows
+                .stream()
+                .map(this::toDto)
+                .toList();
+    }
+
     public void toUpdate(CardDto.UpdateCardDto dto, Card card) {
         if (dto == null) return;
         if (dto.getCardHolder() != null && !dto.getCardHolder().isEmpty()) {
@@ -1,9 +1,13 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.base.BaseEntity;
+import com.example.bankcards.entity.converter.MoneyConverter;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.listener.CardSearchIndexListener;
+import com.example.bankcards.util.Money;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -16,11 +20,16 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "cards")
+@EntityListeners(CardSearchIndexListener.class)
 public class Card extends BaseEntity {
 
     @Column(nullable = false, unique = true)
     private String encryptedNumber;
 
+    //HMAC of the plain number, used for lookups instead of the ciphertext
+    @Column(length = 32)
+    private byte[] numberHash;
+
     private String lastFourDigits;
 
     @Column(nullable = false)
@@ -36,5 +45,39 @@ public class Card extends BaseEntity {
     @JoinColumn(name = "owner_id")
     private User owner; // karta kimga tegishli
 
-    private BigDecimal balance = BigDecimal.ZERO;
+    @Convert(converter = MoneyConverter.class)
+    private Money balance = Money.ZERO;
+
+    //0 keeps the whole balance on this row, otherwise credits are spread over that many card_balance_shards rows
+    @Column(nullable = false)
+    private int balanceShards;
+
+    //credits parked on the shards, read along with the card; the subquery only runs for sharded cards
+    @Formula("(case when balance_shards > 0 then " +
+            "(select coalesce(sum(s.balance), 0) from card_balance_shards s where s.card_id = id) else 0 end)")
+    private BigDecimal shardedBalance;
+
+    //reserved by AUTHORIZED holds: still part of the ledger balance, no longer spendable
+    @Builder.Default
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money heldAmount = Money.ZERO;
+
+    @Version
+    private Long version;
+
+    //what the owner sees: this row plus every shard, as of the moment the card was read
+    public Money getTotalBalance() {
+        return totalBalance(balance, shardedBalance);
+    }
+
+    //shared with the column projections of CardRepository
+    public static Money totalBalance(Money balance, BigDecimal shardedBalance) {
+        return shardedBalance == null || shardedBalance.signum() == 0 ? balance : balance.plus(Money.of(shardedBalance));
+    }
+
+    //what can still be spent: the ledger balance less the open holds
+    public Money getAvailableBalance() {
+        return getTotalBalance().minus(heldAmount);
+    }
 }
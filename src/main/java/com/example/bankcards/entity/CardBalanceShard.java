@@ -0,0 +1,28 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.base.BaseEntity;
+import com.example.bankcards.entity.converter.MoneyConverter;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+//part of a hot card's balance; credits land on one shard so they do not queue on the cards row
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "card_balance_shards")
+public class CardBalanceShard extends BaseEntity {
+
+    @Column(nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false)
+    private int shardNo;
+
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money balance;
+}
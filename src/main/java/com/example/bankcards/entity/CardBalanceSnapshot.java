@@ -0,0 +1,28 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.base.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+//balance of a card as of a checkpoint: every ledger leg created before asOf is included
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "card_balance_snapshots")
+public class CardBalanceSnapshot extends BaseEntity {
+
+    @Column(nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false)
+    private LocalDateTime asOf;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+}
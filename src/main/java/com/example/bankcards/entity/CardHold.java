@@ -0,0 +1,42 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.base.BaseEntity;
+import com.example.bankcards.entity.converter.MoneyConverter;
+import com.example.bankcards.entity.enums.HoldStatus;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//funds reserved on a card for a later capture to the target card; counted in the card's heldAmount while AUTHORIZED
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "card_holds")
+public class CardHold extends BaseEntity {
+
+    @Column(nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false)
+    private Long targetCardId;
+
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
+
+    //set on capture, at most the held amount; the rest goes back to the card
+    @Convert(converter = MoneyConverter.class)
+    private Money capturedAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private HoldStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,35 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.base.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+//a card whose stored balance differs from the sum of its ledger legs in one reconciliation run
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "reconciliation_mismatches")
+public class ReconciliationMismatch extends BaseEntity {
+
+    @Column(nullable = false)
+    private UUID runId;
+
+    @Column(nullable = false)
+    private Long cardId;
+
+    @Column(nullable = false)
+    private BigDecimal cardBalance;
+
+    @Column(nullable = false)
+    private BigDecimal ledgerBalance;
+
+    //card balance minus ledger balance
+    @Column(nullable = false)
+    private BigDecimal difference;
+}
@@ -0,0 +1,50 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.base.BaseEntity;
+import com.example.bankcards.entity.converter.MoneyConverter;
+import com.example.bankcards.entity.enums.StandingOrderFrequency;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+//a recurring transfer; created_by is the customer who set it up
+@Builder
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "standing_orders")
+public class StandingOrder extends BaseEntity {
+
+    @Column(nullable = false)
+    private Long fromCardId;
+
+    @Column(nullable = false)
+    private Long toCardId;
+
+    @Column(nullable = false)
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StandingOrderFrequency frequency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StandingOrderStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime nextRunAt;
+
+    //outcome of the latest run, a failed run is not retried before the next period
+    private LocalDateTime lastRunAt;
+
+    private String lastStatus;
+
+    private String lastMessage;
+}
@@ -1,11 +1,14 @@
 package com.example.bankcards.entity;
 
 import com.example.bankcards.entity.base.BaseEntity;
+import com.example.bankcards.entity.converter.MoneyConverter;
+import com.example.bankcards.entity.enums.EntryDirection;
 import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.util.Money;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
+import java.util.UUID;
 
 @Setter
 @Getter
@@ -19,7 +22,13 @@ public class Transaction extends BaseEntity {
     private String description;
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
-    private BigDecimal amount;
+    //signed: debits are negative, credits positive, the legs of one transfer sum to zero
+    @Convert(converter = MoneyConverter.class)
+    private Money amount;
     @ManyToOne
     private Card card;
+    //shared by all legs of one money movement
+    private UUID transferId;
+    @Enumerated(EnumType.STRING)
+    private EntryDirection direction;
 }
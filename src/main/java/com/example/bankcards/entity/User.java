@@ -38,6 +38,10 @@ public class User extends BaseEntity implements UserDetails {
     @Column(nullable = false)
     private UserStatus userStatus;
 
+    //bumped on every security change, stateless tokens carry it as a claim
+    @Column(nullable = false)
+    private long tokenVersion;
+
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
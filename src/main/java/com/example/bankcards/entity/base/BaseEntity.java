@@ -19,8 +19,10 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity implements Serializable {
 
+    //one pooled sequence per table (users_seq, cards_seq, transactions_seq, ...), 50 ids per round trip;
+    //IDENTITY would make Hibernate insert row by row to read the key back
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreatedBy
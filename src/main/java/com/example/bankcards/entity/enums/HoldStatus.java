@@ -0,0 +1,9 @@
+package com.example.bankcards.entity.enums;
+
+//only AUTHORIZED holds reserve funds, the others are final
+public enum HoldStatus {
+    AUTHORIZED,
+    CAPTURED,
+    RELEASED,
+    EXPIRED
+}
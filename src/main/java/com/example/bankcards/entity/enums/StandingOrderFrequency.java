@@ -0,0 +1,17 @@
+package com.example.bankcards.entity.enums;
+
+import java.time.LocalDateTime;
+
+public enum StandingOrderFrequency {
+    DAILY,
+    WEEKLY,
+    MONTHLY;
+
+    public LocalDateTime next(LocalDateTime runAt) {
+        return switch (this) {
+            case DAILY -> runAt.plusDays(1);
+            case WEEKLY -> runAt.plusWeeks(1);
+            case MONTHLY -> runAt.plusMonths(1);
+        };
+    }
+}
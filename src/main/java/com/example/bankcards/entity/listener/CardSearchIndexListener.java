@@ -0,0 +1,35 @@
+package com.example.bankcards.entity.listener;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.service.impl.CardSearchIndex;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands card inserts, updates and soft deletes to the in-memory {@link CardSearchIndex}.
+ * The index is looked up on use: this listener is created with the entity manager factory
+ * that the index's repository depends on.
+ */
+@Component
+public class CardSearchIndexListener {
+
+    private final ObjectProvider<CardSearchIndex> cardSearchIndex;
+
+    public CardSearchIndexListener(ObjectProvider<CardSearchIndex> cardSearchIndex) {
+        this.cardSearchIndex = cardSearchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Card card) {
+        this.cardSearchIndex.ifAvailable(index -> index.onSaved(card));
+    }
+
+    @PostRemove
+    public void removed(Card card) {
+        this.cardSearchIndex.ifAvailable(index -> index.onRemoved(card));
+    }
+}
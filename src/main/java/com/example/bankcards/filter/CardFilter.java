@@ -2,8 +2,10 @@ package com.example.bankcards.filter;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.EncryptionService;
 import jakarta.persistence.criteria.*;
 import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.jpa.domain.Specification;
@@ -11,6 +13,7 @@ import org.springframework.data.jpa.domain.Specification;
 import java.util.ArrayList;
 import java.util.List;
 
+@Getter
 @AllArgsConstructor
 @NoArgsConstructor
 public class CardFilter implements Specification<Card> {
@@ -44,12 +47,7 @@ public class CardFilter implements Specification<Card> {
         List<Predicate> predicates = new ArrayList<>();
 
         if (keyword != null && !keyword.trim().isEmpty()) {
-            String kw = "%" + keyword.trim().toLowerCase() + "%";
-            Predicate keywordPredicate = cb.or(
-                    cb.like(cb.lower(root.get("ownerName")), kw),
-                    cb.like(cb.lower(root.get("lastFourDigits")), kw)
-            );
-            predicates.add(keywordPredicate);
+            predicates.add(this.keywordPredicate(keyword.trim().toLowerCase(), root, cb));
         }
 
         if (status != null) {
@@ -58,7 +56,22 @@ public class CardFilter implements Specification<Card> {
 
         predicates.add(cb.equal(root.get("deleted"), deleted));
 
-        query.orderBy(cb.desc(root.get("id")));
+        //ordering is left to the caller: a page request sorts by id, the keyset mode seeks on it
         return cb.and(predicates.toArray(new Predicate[0]));
     }
+
+    //each shape is served by an index from changeset 18: four digits by the b-tree on last_four_digits,
+    //substrings by the pg_trgm GIN indexes on lower(owner_name) and last_four_digits
+    private Predicate keywordPredicate(String kw, Root<Card> root, CriteriaBuilder cb) {
+        boolean digits = kw.chars().allMatch(Character::isDigit);
+        if (digits && kw.length() == 4) {
+            return cb.equal(root.get("lastFourDigits"), EncryptionService.MASK_PREFIX + kw);
+        }
+        Predicate ownerName = cb.like(cb.lower(root.get("ownerName")), "%" + kw + "%");
+        //the masked number holds at most four digits and nothing else worth matching
+        if (!digits || kw.length() > 4) {
+            return ownerName;
+        }
+        return cb.or(ownerName, cb.like(root.get("lastFourDigits"), "%" + kw + "%"));
+    }
 }
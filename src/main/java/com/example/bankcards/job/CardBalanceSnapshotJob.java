@@ -0,0 +1,56 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.impl.CardBalanceHistory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+//daily balance checkpoints, written in keyset chunks that only read cards and never lock them
+@Slf4j
+@Component
+public class CardBalanceSnapshotJob {
+
+    private final CardRepository cardRepository;
+    private final CardBalanceHistory cardBalanceHistory;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public CardBalanceSnapshotJob(CardRepository cardRepository,
+                                  CardBalanceHistory cardBalanceHistory,
+                                  @Value("${bank.ledger.snapshot.enabled:true}") boolean enabled,
+                                  @Value("${bank.ledger.snapshot.chunk-size:500}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.cardBalanceHistory = cardBalanceHistory;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${bank.ledger.snapshot.cron:0 15 0 * * *}")
+    public void snapshotDaily() {
+        if (!enabled) return;
+        this.takeSnapshots(LocalDate.now().atStartOfDay());
+    }
+
+    public int takeSnapshots(LocalDateTime asOf) {
+        //the column keeps microseconds: a finer checkpoint would never match its stored rows on a rerun
+        asOf = asOf.truncatedTo(ChronoUnit.MICROS);
+        long lastId = 0;
+        int written = 0;
+        while (true) {
+            List<Long> ids = this.cardRepository.findIdsAfter(lastId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) break;
+            written += this.cardBalanceHistory.snapshotChunk(ids, asOf);
+            lastId = ids.get(ids.size() - 1);
+        }
+        log.info("Balance snapshots as of {} written for {} cards", asOf, written);
+        return written;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.CardExpiryDto;
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marks cards past their expiry date as EXPIRED. The id space is walked in ranges of
+ * {@code range-size} ids, each one a single set-based UPDATE committed together with the job's
+ * checkpoint row, so no transaction holds more than one range of row locks and no card is loaded.
+ * <p>
+ * The checkpoint is locked at the start of every range: a node that dies mid-run is picked up where
+ * it stopped (on the next start or the next night), and nodes running the job at the same time take
+ * turns on the ranges instead of repeating them.
+ */
+@Slf4j
+@Component
+public class CardExpiryJob {
+
+    static final String JOB_NAME = "card-expiry";
+
+    private final CardRepository cardRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int rangeSize;
+    private final Timer runTimer;
+    private final Counter expiredCounter;
+    //share of the id space done in the current run, 1 when idle
+    private volatile double progress = 1;
+
+    public CardExpiryJob(CardRepository cardRepository,
+                         JobCheckpointRepository checkpointRepository,
+                         TransactionRetryTemplate transactionRetryTemplate,
+                         MeterRegistry meterRegistry,
+                         @Value("${bank.card.expiry.enabled:true}") boolean enabled,
+                         @Value("${bank.card.expiry.range-size:5000}") int rangeSize) {
+        this.cardRepository = cardRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.rangeSize = Math.max(1, rangeSize);
+        this.runTimer = Timer.builder("bank.card_expiry.run").register(meterRegistry);
+        this.expiredCounter = Counter.builder("bank.card_expiry.expired").register(meterRegistry);
+        Gauge.builder("bank.card_expiry.progress", this, job -> job.progress).register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${bank.card.expiry.cron:0 0 0 * * *}")
+    public void expireNightly() {
+        if (!enabled) return;
+        this.expire(LocalDate.now());
+    }
+
+    //a run cut short by a restart is finished right away instead of waiting for the next night
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        if (!enabled) return;
+        boolean unfinished = this.checkpointRepository.findById(JOB_NAME)
+                .map(checkpoint -> !checkpoint.isCompleted())
+                .orElse(false);
+        if (unfinished) {
+            log.info("Resuming unfinished card expiry run");
+            this.expire(LocalDate.now());
+        }
+    }
+
+    //expires every card whose expiry date is before runDate
+    public CardExpiryDto expire(LocalDate runDate) {
+        long started = System.nanoTime();
+        Long minId = this.cardRepository.findMinId();
+        Long maxId = this.cardRepository.findMaxId();
+        if (minId == null) {
+            return CardExpiryDto.builder().runDate(runDate).completed(true).build();
+        }
+        this.start(runDate, minId - 1);
+
+        long expired = 0;
+        int ranges = 0;
+        Range range;
+        do {
+            range = this.transactionRetryTemplate.execute(() -> this.expireNextRange(runDate, minId, maxId));
+            if (range.lastId() < 0) break;
+            ranges++;
+            expired += range.expired();
+            this.expiredCounter.increment(range.expired());
+            double done = maxId > minId ? (double) (range.lastId() - minId + 1) / (maxId - minId + 1) : 1;
+            //roughly every tenth of the id space
+            if ((int) (done * 10) > (int) (this.progress * 10)) {
+                log.info("Card expiry {}: {}% of ids, {} cards expired", runDate,
+                        Math.min(100, (int) (done * 100)), expired);
+            }
+            this.progress = Math.min(1, done);
+        } while (!range.completed());
+        this.progress = 1;
+
+        long elapsedNanos = System.nanoTime() - started;
+        this.runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        CardExpiryDto result = CardExpiryDto.builder()
+                .runDate(runDate)
+                .expired(expired)
+                .ranges(ranges)
+                .lastId(range.lastId() < 0 ? maxId : range.lastId())
+                .completed(true)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .build();
+        log.info("Card expiry {}: {} cards expired over {} id ranges in {} ms",
+                runDate, expired, ranges, result.getElapsedMs());
+        return result;
+    }
+
+    //opens a run for runDate unless one is already open or done; concurrent first inserts collide once
+    private void start(LocalDate runDate, long beforeFirstId) {
+        try {
+            this.transactionRetryTemplate.execute(() -> this.openRun(runDate, beforeFirstId));
+        } catch (DataIntegrityViolationException e) {
+            this.transactionRetryTemplate.execute(() -> this.openRun(runDate, beforeFirstId));
+        }
+        this.progress = 0;
+    }
+
+    private JobCheckpoint openRun(LocalDate runDate, long beforeFirstId) {
+        JobCheckpoint checkpoint = this.checkpointRepository.findByJobNameForUpdate(JOB_NAME)
+                .orElseGet(() -> JobCheckpoint.builder().jobName(JOB_NAME).build());
+        if (runDate.equals(checkpoint.getRunDate())) {
+            return checkpoint;
+        }
+        //an older run left unfinished is simply superseded: the new cutoff covers its cards too
+        checkpoint.setRunDate(runDate);
+        checkpoint.setLastId(beforeFirstId);
+        checkpoint.setCompleted(false);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        return this.checkpointRepository.saveAndFlush(checkpoint);
+    }
+
+    private Range expireNextRange(LocalDate runDate, long minId, long maxId) {
+        JobCheckpoint checkpoint = this.checkpointRepository.findByJobNameForUpdate(JOB_NAME).orElseThrow();
+        //done by another node, or superseded by a newer run
+        if (checkpoint.isCompleted() || !runDate.equals(checkpoint.getRunDate())) {
+            return new Range(0, -1, true);
+        }
+        long afterId = Math.max(checkpoint.getLastId(), minId - 1);
+        long toId = Math.min(afterId + rangeSize, maxId);
+        LocalDateTime now = LocalDateTime.now();
+        int expired = this.cardRepository.expireRange(afterId, toId, runDate, CardStatus.EXPIRED, now);
+        checkpoint.setLastId(toId);
+        checkpoint.setCompleted(toId >= maxId);
+        checkpoint.setUpdatedAt(now);
+        this.checkpointRepository.save(checkpoint);
+        return new Range(expired, toId, checkpoint.isCompleted());
+    }
+
+    private record Range(int expired, long lastId, boolean completed) {
+    }
+}
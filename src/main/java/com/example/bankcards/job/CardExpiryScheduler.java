@@ -0,0 +1,161 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Flips cards to EXPIRED right after their expiry date ends instead of waiting for the nightly run.
+ * Upcoming expiries are kept in memory ordered by date, for the next {@code lookahead-days} only:
+ * the window is loaded from the expiry_date index as it moves forward, one new day at a time, plus
+ * the cards of the loaded window that were edited since the last refresh. Every tick takes the
+ * dates that have ended and expires their cards in small batches.
+ * <p>
+ * Entries are only hints: the UPDATE checks the date and status again. Cards that expired while
+ * no node was running are left to {@link CardExpiryJob}.
+ */
+@Slf4j
+@Component
+public class CardExpiryScheduler {
+
+    //updatedAt is stamped before commit, so each refresh looks back a little further than the last one
+    private static final long REFRESH_OVERLAP_SECONDS = 30;
+
+    private final CardRepository cardRepository;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int lookaheadDays;
+    private final int batchSize;
+    private final Counter expiredCounter;
+    //expiry date -> card ids, guarded by itself
+    private final TreeMap<LocalDate, Set<Long>> upcoming = new TreeMap<>();
+    private int tracked;
+    //expiry dates before this one are loaded; null until the first load
+    private LocalDate loadedUntil;
+    private LocalDateTime lastRefreshAt;
+
+    public CardExpiryScheduler(CardRepository cardRepository,
+                               TransactionRetryTemplate transactionRetryTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${bank.card.expiry.timer.enabled:true}") boolean enabled,
+                               @Value("${bank.card.expiry.timer.lookahead-days:2}") int lookaheadDays,
+                               @Value("${bank.card.expiry.timer.batch-size:200}") int batchSize) {
+        this.cardRepository = cardRepository;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.lookaheadDays = Math.max(0, lookaheadDays);
+        this.batchSize = Math.max(1, batchSize);
+        this.expiredCounter = Counter.builder("bank.card_expiry.timer.expired").register(meterRegistry);
+        Gauge.builder("bank.card_expiry.timer.tracked", this, CardExpiryScheduler::tracked).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+        this.refresh();
+        log.info("Tracking {} upcoming card expiries until {}", this.tracked(), this.loadedUntil);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.card.expiry.timer.refresh-ms:60000}",
+            initialDelayString = "${bank.card.expiry.timer.refresh-ms:60000}")
+    public synchronized void refresh() {
+        if (!enabled) return;
+        LocalDateTime started = LocalDateTime.now();
+        LocalDate today = started.toLocalDate();
+        //yesterday's expiries end at today's midnight, anything older is the nightly job's
+        LocalDate from = today.minusDays(1);
+        LocalDate horizon = today.plusDays(lookaheadDays + 1L);
+        LocalDate loadFrom = this.loadedUntil == null || this.loadedUntil.isBefore(from) ? from : this.loadedUntil;
+        int loaded = 0;
+        long afterId = 0;
+        while (loadFrom.isBefore(horizon)) {
+            List<CardRepository.Expiry> page = this.cardRepository.findExpiringBetween(loadFrom, horizon,
+                    CardStatus.EXPIRED, afterId, PageRequest.of(0, batchSize));
+            this.track(page);
+            loaded += page.size();
+            if (page.size() < batchSize) break;
+            afterId = page.get(page.size() - 1).getId();
+        }
+        if (this.lastRefreshAt != null && loadFrom.isAfter(from)) {
+            loaded += this.track(this.cardRepository.findExpiringBetweenUpdatedSince(from, loadFrom,
+                    CardStatus.EXPIRED, this.lastRefreshAt.minusSeconds(REFRESH_OVERLAP_SECONDS)));
+        }
+        this.loadedUntil = horizon;
+        this.lastRefreshAt = started;
+        log.debug("Card expiry index refreshed: {} loaded, {} tracked until {}", loaded, this.tracked(), horizon);
+    }
+
+    //expires the cards of every expiry date that has ended
+    @Scheduled(fixedDelayString = "${bank.card.expiry.timer.tick-ms:1000}")
+    public int expireDue() {
+        if (!enabled) return 0;
+        LocalDate today = LocalDate.now();
+        List<Long> due = this.takeDue(today);
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                expired += this.transactionRetryTemplate.execute(() ->
+                        this.cardRepository.expireIds(batch, today, CardStatus.EXPIRED, LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Could not expire {} cards, leaving them to the nightly run: {}", batch.size(), e.getMessage());
+            }
+        }
+        if (expired > 0) {
+            this.expiredCounter.increment(expired);
+            log.info("Expired {} cards whose expiry date ended before {}", expired, today);
+        }
+        return expired;
+    }
+
+    public int tracked() {
+        synchronized (this.upcoming) {
+            return this.tracked;
+        }
+    }
+
+    private int track(List<CardRepository.Expiry> expiries) {
+        int added = 0;
+        synchronized (this.upcoming) {
+            for (CardRepository.Expiry expiry : expiries) {
+                if (this.upcoming.computeIfAbsent(expiry.getExpiryDate(), date -> new LinkedHashSet<>()).add(expiry.getId())) {
+                    added++;
+                }
+            }
+            this.tracked += added;
+        }
+        return added;
+    }
+
+    private List<Long> takeDue(LocalDate today) {
+        List<Long> due = new ArrayList<>();
+        synchronized (this.upcoming) {
+            Map<LocalDate, Set<Long>> ended = this.upcoming.headMap(today, false);
+            for (Set<Long> ids : ended.values()) {
+                due.addAll(ids);
+            }
+            ended.clear();
+            this.tracked -= due.size();
+        }
+        return due;
+    }
+}
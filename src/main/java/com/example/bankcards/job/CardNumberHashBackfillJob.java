@@ -0,0 +1,67 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//fills cards.number_hash for rows created before the blind index existed
+@Slf4j
+@Component
+public class CardNumberHashBackfillJob {
+
+    private final CardRepository cardRepository;
+    private final EncryptionService encryptionService;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public CardNumberHashBackfillJob(CardRepository cardRepository,
+                                     EncryptionService encryptionService,
+                                     TransactionRetryTemplate transactionRetryTemplate,
+                                     @Value("${bank.card.number-hash.backfill.enabled:true}") boolean enabled,
+                                     @Value("${bank.card.number-hash.backfill.chunk-size:500}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.encryptionService = encryptionService;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) return;
+        long lastId = 0;
+        long total = 0;
+        while (true) {
+            final long afterId = lastId;
+            //each chunk commits on its own, a concurrent transfer only makes the chunk retry
+            List<Long> ids = this.transactionRetryTemplate.execute(() -> this.backfillChunk(afterId));
+            if (ids.isEmpty()) break;
+            total += ids.size();
+            lastId = ids.get(ids.size() - 1);
+        }
+        if (total > 0) {
+            log.info("Card number hash backfilled for {} cards", total);
+        }
+    }
+
+    private List<Long> backfillChunk(long afterId) {
+        List<Card> chunk = this.cardRepository.findAllByNumberHashIsNullAndIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.of(0, chunkSize));
+        for (Card card : chunk) {
+            String cardNumber = this.encryptionService.decrypt(card.getEncryptedNumber());
+            card.setNumberHash(this.encryptionService.blindIndex(cardNumber));
+        }
+        this.cardRepository.saveAll(chunk);
+        return chunk.stream().map(Card::getId).toList();
+    }
+}
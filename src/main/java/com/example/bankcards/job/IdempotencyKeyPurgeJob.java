@@ -0,0 +1,68 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes idempotency keys past their expiry. Each chunk of keys is selected and deleted in its
+ * own short transaction, so a large backlog never holds many row locks or one long transaction.
+ * Nodes running it at the same time at worst delete nothing for a chunk another node took.
+ */
+@Slf4j
+@Component
+public class IdempotencyKeyPurgeJob {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public IdempotencyKeyPurgeJob(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  TransactionRetryTemplate transactionRetryTemplate,
+                                  @Value("${bank.idempotency.purge.enabled:true}") boolean enabled,
+                                  @Value("${bank.idempotency.purge.chunk-size:1000}") int chunkSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge.interval-ms:3600000}",
+            initialDelayString = "${bank.idempotency.purge.interval-ms:3600000}")
+    public synchronized void purgeScheduled() {
+        if (!enabled) return;
+        this.purge(LocalDateTime.now());
+    }
+
+    //removes every key that expired before now, returns how many were deleted
+    public int purge(LocalDateTime now) {
+        int deleted = 0;
+        while (true) {
+            int[] chunk = this.transactionRetryTemplate.execute(() -> this.purgeChunk(now));
+            deleted += chunk[1];
+            //a short chunk was the last one
+            if (chunk[0] < chunkSize) break;
+        }
+        if (deleted > 0) {
+            log.info("Purged {} idempotency keys expired before {}", deleted, now);
+        }
+        return deleted;
+    }
+
+    //returns {keys selected, keys deleted}
+    private int[] purgeChunk(LocalDateTime now) {
+        List<String> keys = this.idempotencyRecordRepository.findExpiredKeys(now, PageRequest.of(0, chunkSize));
+        if (keys.isEmpty()) {
+            return new int[]{0, 0};
+        }
+        return new int[]{keys.size(), this.idempotencyRecordRepository.deleteExpired(keys, now)};
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.ReconciliationDto;
+import com.example.bankcards.entity.ReconciliationMismatch;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ReconciliationMismatchRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+/**
+ * Checks every card's stored balance against the sum of its ledger legs.
+ * The id space is split into ranges that run on a dedicated fork/join pool; each range is one
+ * streamed aggregate query under REPEATABLE READ, so a transfer committing mid-range cannot
+ * show up as a false mismatch. A semaphore caps the pooled connections the job holds at once.
+ */
+@Slf4j
+@Component
+public class LedgerReconciliationJob {
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int rangeSize;
+    private final int parallelism;
+    private final Semaphore connectionBudget;
+
+    public LedgerReconciliationJob(CardRepository cardRepository,
+                                   TransactionRepository transactionRepository,
+                                   ReconciliationMismatchRepository mismatchRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${bank.reconciliation.enabled:true}") boolean enabled,
+                                   @Value("${bank.reconciliation.range-size:1000}") int rangeSize,
+                                   @Value("${bank.reconciliation.max-connections:2}") int maxConnections) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.enabled = enabled;
+        this.rangeSize = rangeSize;
+        this.parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), maxConnections));
+        this.connectionBudget = new Semaphore(Math.max(1, maxConnections));
+    }
+
+    @Scheduled(cron = "${bank.reconciliation.cron:0 30 2 * * *}")
+    public void reconcileNightly() {
+        if (!enabled) return;
+        this.reconcile();
+    }
+
+    public ReconciliationDto reconcile() {
+        UUID runId = UUID.randomUUID();
+        long started = System.nanoTime();
+        Long minId = this.cardRepository.findMinId();
+        Long maxId = this.cardRepository.findMaxId();
+        long[] totals = {0, 0};
+        if (minId != null) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                totals = pool.invoke(new RangeTask(runId, minId, maxId));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        ReconciliationDto result = ReconciliationDto.builder()
+                .runId(runId)
+                .cardsChecked(totals[0])
+                .mismatches(totals[1])
+                .elapsedMs((System.nanoTime() - started) / 1_000_000)
+                .parallelism(parallelism)
+                .build();
+        log.info("Reconciliation {} checked {} cards in {} ms, {} mismatches",
+                runId, result.getCardsChecked(), result.getElapsedMs(), result.getMismatches());
+        return result;
+    }
+
+    //returns {cards checked, mismatches}
+    private long[] reconcileRange(UUID runId, long fromId, long toId) {
+        this.connectionBudget.acquireUninterruptibly();
+        try {
+            return this.transactionTemplate.execute(status -> {
+                long checked = 0;
+                List<ReconciliationMismatch> mismatches = new ArrayList<>();
+                try (Stream<Object[]> rows = this.transactionRepository.streamLedgerTotals(fromId, toId)) {
+                    Iterator<Object[]> iterator = rows.iterator();
+                    while (iterator.hasNext()) {
+                        Object[] row = iterator.next();
+                        checked++;
+                        //the card row balance comes back through MoneyConverter, the sums as plain NUMERIC
+                        BigDecimal cardBalance = ((Money) row[1]).toBigDecimal().add((BigDecimal) row[2]);
+                        BigDecimal ledgerBalance = (BigDecimal) row[3];
+                        if (cardBalance.compareTo(ledgerBalance) != 0) {
+                            mismatches.add(ReconciliationMismatch.builder()
+                                    .runId(runId)
+                                    .cardId((Long) row[0])
+                                    .cardBalance(cardBalance)
+                                    .ledgerBalance(ledgerBalance)
+                                    .difference(cardBalance.subtract(ledgerBalance))
+                                    .build());
+                        }
+                    }
+                }
+                this.mismatchRepository.saveAll(mismatches);
+                return new long[]{checked, mismatches.size()};
+            });
+        } finally {
+            this.connectionBudget.release();
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<long[]> {
+
+        private final UUID runId;
+        private final long fromId;
+        private final long toId;
+
+        private RangeTask(UUID runId, long fromId, long toId) {
+            this.runId = runId;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toId - fromId < rangeSize) {
+                return reconcileRange(runId, fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(runId, fromId, middle);
+            RangeTask right = new RangeTask(runId, middle + 1, toId);
+            left.fork();
+            long[] rightTotals = right.compute();
+            long[] leftTotals = left.join();
+            return new long[]{leftTotals[0] + rightTotals[0], leftTotals[1] + rightTotals[1]};
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.StandingOrderDto;
+import com.example.bankcards.entity.StandingOrder;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.StandingOrderRepository;
+import com.example.bankcards.service.impl.CardServiceImpl;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes due standing orders. Each chunk is one transaction: the due orders are claimed with
+ * FOR UPDATE SKIP LOCKED, applied through the batch transfer path and moved to their next run
+ * before the commit releases them. Nodes running at the same time therefore claim disjoint chunks
+ * and an order cannot be paid twice for one period.
+ * <p>
+ * An order that missed several periods is paid once and moved to its first future run.
+ */
+@Slf4j
+@Component
+public class StandingOrderJob {
+
+    private static final int MAX_MESSAGE_LENGTH = 255;
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final CardRepository cardRepository;
+    private final CardServiceImpl cardService;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final Timer runTimer;
+    private final Counter executed;
+    private final Counter failed;
+    private final DistributionSummary lag;
+
+    public StandingOrderJob(StandingOrderRepository standingOrderRepository,
+                            CardRepository cardRepository,
+                            CardServiceImpl cardService,
+                            TransactionRetryTemplate transactionRetryTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${bank.standing-order.enabled:true}") boolean enabled,
+                            @Value("${bank.standing-order.chunk-size:200}") int chunkSize) {
+        this.standingOrderRepository = standingOrderRepository;
+        this.cardRepository = cardRepository;
+        this.cardService = cardService;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.runTimer = Timer.builder("bank.standing_orders.run").register(meterRegistry);
+        this.executed = Counter.builder("bank.standing_orders.executed").register(meterRegistry);
+        this.failed = Counter.builder("bank.standing_orders.failed").register(meterRegistry);
+        //how long after its due time an order was actually paid
+        this.lag = DistributionSummary.builder("bank.standing_orders.lag")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${bank.standing-order.poll-ms:60000}")
+    public void runScheduled() {
+        if (!enabled) return;
+        this.runDue();
+    }
+
+    public StandingOrderDto.RunDto runDue() {
+        LocalDateTime now = LocalDateTime.now();
+        long started = System.nanoTime();
+        int claimed = 0;
+        int succeeded = 0;
+        long maxLagMs = 0;
+        long totalLagMs = 0;
+        while (true) {
+            ChunkResult chunk = this.transactionRetryTemplate.execute(() -> this.runChunk(now));
+            if (chunk.claimed() == 0) break;
+            claimed += chunk.claimed();
+            succeeded += chunk.succeeded();
+            maxLagMs = Math.max(maxLagMs, chunk.maxLagMs());
+            totalLagMs += chunk.totalLagMs();
+            for (long lagMs : chunk.lagsMs()) {
+                this.lag.record(lagMs);
+            }
+            if (chunk.claimed() < chunkSize) break;
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        this.runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        this.executed.increment(succeeded);
+        this.failed.increment(claimed - succeeded);
+
+        StandingOrderDto.RunDto result = StandingOrderDto.RunDto.builder()
+                .claimed(claimed)
+                .succeeded(succeeded)
+                .failed(claimed - succeeded)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .ordersPerSecond(elapsedNanos == 0 ? 0 : claimed / (elapsedNanos / 1_000_000_000.0))
+                .maxLagMs(maxLagMs)
+                .averageLagMs(claimed == 0 ? 0 : totalLagMs / claimed)
+                .build();
+        if (claimed > 0) {
+            log.info("Standing orders: {} run ({} ok, {} failed) in {} ms, {} orders/s, lag avg {} ms max {} ms",
+                    claimed, succeeded, result.getFailed(), result.getElapsedMs(),
+                    String.format("%.1f", result.getOrdersPerSecond()), result.getAverageLagMs(), maxLagMs);
+        }
+        return result;
+    }
+
+    private ChunkResult runChunk(LocalDateTime now) {
+        List<StandingOrder> orders = this.standingOrderRepository.claimDue(StandingOrderStatus.ACTIVE, now,
+                PageRequest.of(0, chunkSize));
+        if (orders.isEmpty()) {
+            return new ChunkResult(0, 0, 0, 0, new long[0]);
+        }
+        //cards are keyed by id: the batch path only uses the keys to find the number hashes
+        Set<Long> cardIds = new HashSet<>();
+        for (StandingOrder order : orders) {
+            cardIds.add(order.getFromCardId());
+            cardIds.add(order.getToCardId());
+        }
+        Map<String, ByteBuffer> hashes = new HashMap<>();
+        for (CardRepository.NumberHash card : this.cardRepository.findNumberHashesByIdIn(cardIds)) {
+            if (card.getNumberHash() != null) {
+                hashes.put(String.valueOf(card.getId()), ByteBuffer.wrap(card.getNumberHash()));
+            }
+        }
+        List<CardDto.TransferDto> transfers = new ArrayList<>(orders.size());
+        for (StandingOrder order : orders) {
+            CardDto.TransferDto transfer = new CardDto.TransferDto();
+            transfer.setCardFrom(String.valueOf(order.getFromCardId()));
+            transfer.setCardTo(String.valueOf(order.getToCardId()));
+            transfer.setAmount(order.getAmount().toBigDecimal());
+            transfers.add(transfer);
+        }
+
+        List<CardDto.TransferResultDto> results = this.cardService.applyTransfers(transfers, hashes);
+
+        int succeeded = 0;
+        long maxLagMs = 0;
+        long totalLagMs = 0;
+        long[] lagsMs = new long[orders.size()];
+        for (int i = 0; i < orders.size(); i++) {
+            StandingOrder order = orders.get(i);
+            CardDto.TransferResultDto result = results.get(i);
+            if (result.getStatus() == HttpStatus.OK) succeeded++;
+            lagsMs[i] = Math.max(0, Duration.between(order.getNextRunAt(), now).toMillis());
+            maxLagMs = Math.max(maxLagMs, lagsMs[i]);
+            totalLagMs += lagsMs[i];
+
+            order.setLastRunAt(now);
+            order.setLastStatus(result.getStatus().name());
+            order.setLastMessage(result.getMessage() == null || result.getMessage().length() <= MAX_MESSAGE_LENGTH
+                    ? result.getMessage()
+                    : result.getMessage().substring(0, MAX_MESSAGE_LENGTH));
+            LocalDateTime next = order.getFrequency().next(order.getNextRunAt());
+            while (!next.isAfter(now)) {
+                next = order.getFrequency().next(next);
+            }
+            order.setNextRunAt(next);
+        }
+        this.standingOrderRepository.saveAll(orders);
+        return new ChunkResult(orders.size(), succeeded, maxLagMs, totalLagMs, lagsMs);
+    }
+
+    private record ChunkResult(int claimed, int succeeded, long maxLagMs, long totalLagMs, long[] lagsMs) {
+    }
+}
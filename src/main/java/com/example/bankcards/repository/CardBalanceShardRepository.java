@@ -0,0 +1,26 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CardBalanceShardRepository extends JpaRepository<CardBalanceShard, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceShard s where s.cardId = :cardId and s.shardNo = :shardNo")
+    Optional<CardBalanceShard> findByCardIdAndShardNoForUpdate(@Param("cardId") Long cardId,
+                                                               @Param("shardNo") int shardNo);
+
+    //always locked in shard order, after the card row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from CardBalanceShard s where s.cardId = :cardId order by s.shardNo")
+    List<CardBalanceShard> findAllByCardIdForUpdate(@Param("cardId") Long cardId);
+}
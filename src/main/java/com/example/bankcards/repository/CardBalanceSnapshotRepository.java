@@ -0,0 +1,21 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CardBalanceSnapshotRepository extends JpaRepository<CardBalanceSnapshot, Long> {
+
+    Optional<CardBalanceSnapshot> findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(Long cardId, LocalDateTime at);
+
+    @Query("select s.cardId from CardBalanceSnapshot s where s.cardId in :cardIds and s.asOf = :asOf")
+    List<Long> findCardIdsWithSnapshot(@Param("cardIds") Collection<Long> cardIds, @Param("asOf") LocalDateTime asOf);
+}
@@ -0,0 +1,43 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.enums.HoldStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CardHoldRepository extends JpaRepository<CardHold, Long> {
+
+    //locked after the card rows it touches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from CardHold h where h.id = :id")
+    Optional<CardHold> findByIdForUpdate(@Param("id") Long id);
+
+    //read before any lock is taken; a projection, so the hold itself is loaded fresh by the locking read
+    @Query("select h.cardId as cardId, h.targetCardId as targetCardId from CardHold h where h.id = :id")
+    Optional<Parties> findPartiesById(@Param("id") Long id);
+
+    //id and deadline only, enough to rebuild the expiry wheel
+    @Query("select h.id as id, h.expiresAt as expiresAt from CardHold h where h.status = :status")
+    List<Deadline> findDeadlinesByStatus(@Param("status") HoldStatus status);
+
+    interface Parties {
+        Long getCardId();
+
+        Long getTargetCardId();
+    }
+
+    interface Deadline {
+        Long getId();
+
+        LocalDateTime getExpiresAt();
+    }
+}
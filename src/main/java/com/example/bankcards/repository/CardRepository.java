@@ -2,22 +2,160 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card,Long>, JpaSpecificationExecutor<Card> {
-    boolean existsByEncryptedNumber(String encryptedNumber);
+public interface CardRepository extends JpaRepository<Card,Long>, JpaSpecificationExecutor<Card>, CardRepositoryCustom {
+    boolean existsByNumberHash(byte[] numberHash);
 
-    List<Card> findAllByOwnerId(Long id);
 
+    Optional<Card> findByNumberHash(byte[] numberHash);
 
-    Optional<Card> findByEncryptedNumber(String encryptedNumber);
+    @Query("select c.id from Card c where c.numberHash = :numberHash")
+    Optional<Long> findIdByNumberHash(@Param("numberHash") byte[] numberHash);
 
-    List<Card> findAllByExpiryDateBeforeAndStatusNot(LocalDate expiryDateBefore, CardStatus status);
+    boolean existsByIdAndOwnerId(Long id, Long ownerId);
+
+    //the receiving side of a transfer: the id plus whether credits go to balance shards
+    @Query("select c.id as id, c.balanceShards as balanceShards from Card c where c.numberHash = :numberHash")
+    Optional<CreditTarget> findCreditTargetByNumberHash(@Param("numberHash") byte[] numberHash);
+
+    //for callers that keep card ids and hand transfers to the number-hash based batch path
+    @Query("select c.id as id, c.numberHash as numberHash from Card c where c.id in :ids")
+    List<NumberHash> findNumberHashesByIdIn(@Param("ids") Collection<Long> ids);
+
+    List<Card> findAllByNumberHashIsNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("select min(c.id) from Card c")
+    Long findMinId();
+
+    @Query("select max(c.id) from Card c")
+    Long findMaxId();
+
+    @Query("select c.id from Card c where c.id > :afterId order by c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForUpdate(@Param("id") Long id);
+
+    //one round trip for a whole batch, rows are returned and locked in ascending id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.numberHash in :numberHashes order by c.id")
+    List<Card> findAllByNumberHashInForUpdate(@Param("numberHashes") Collection<byte[]> numberHashes);
+
+    //one set-based statement per id range; versioned so a transfer holding a stale copy of the card retries
+    @Modifying
+    @Query("update versioned Card c set c.status = :expired, c.updatedAt = :now " +
+            "where c.id > :afterId and c.id <= :toId and c.expiryDate < :cutoff and c.status <> :expired")
+    int expireRange(@Param("afterId") long afterId,
+                    @Param("toId") long toId,
+                    @Param("cutoff") LocalDate cutoff,
+                    @Param("expired") CardStatus expired,
+                    @Param("now") LocalDateTime now);
+
+    //upcoming expiries for the in-memory expiry index, walked by id over the (expiry_date, status) index range
+    @Query("select c.id as id, c.expiryDate as expiryDate from Card c " +
+            "where c.expiryDate >= :from and c.expiryDate < :to and c.status <> :expired and c.id > :afterId " +
+            "order by c.id")
+    List<Expiry> findExpiringBetween(@Param("from") LocalDate from,
+                                     @Param("to") LocalDate to,
+                                     @Param("expired") CardStatus expired,
+                                     @Param("afterId") long afterId,
+                                     Pageable pageable);
+
+    //cards in an already loaded window whose expiry date may have been edited since
+    @Query("select c.id as id, c.expiryDate as expiryDate from Card c " +
+            "where c.expiryDate >= :from and c.expiryDate < :to and c.status <> :expired and c.updatedAt > :since")
+    List<Expiry> findExpiringBetweenUpdatedSince(@Param("from") LocalDate from,
+                                                 @Param("to") LocalDate to,
+                                                 @Param("expired") CardStatus expired,
+                                                 @Param("since") LocalDateTime since);
+
+    //the expiry date is checked again, so an id whose date was moved meanwhile is left alone
+    @Modifying
+    @Query("update versioned Card c set c.status = :expired, c.updatedAt = :now " +
+            "where c.id in :ids and c.expiryDate < :cutoff and c.status <> :expired")
+    int expireIds(@Param("ids") Collection<Long> ids,
+                  @Param("cutoff") LocalDate cutoff,
+                  @Param("expired") CardStatus expired,
+                  @Param("now") LocalDateTime now);
+
+    //id, owner name, masked number, status and deleted flag for the in-memory search index,
+    //streamed with a cursor; needs a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.id, c.ownerName, c.lastFourDigits, c.status, c.deleted from Card c")
+    Stream<Object[]> streamSearchRows();
+
+    //every card id in ascending order, streamed for the search index to find hard deletes; needs a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.id from Card c order by c.id")
+    Stream<Long> streamIds();
+
+    //the same columns for cards written since, including the set-based expiry updates
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.id, c.ownerName, c.lastFourDigits, c.status, c.deleted from Card c where c.updatedAt > :since")
+    Stream<Object[]> streamSearchRowsUpdatedSince(@Param("since") LocalDateTime since);
+
+    //what the card list endpoints show, built from the selected columns by findRows
+    record CardRow(Long id,
+                   String lastFourDigits,
+                   String ownerName,
+                   LocalDate expiryDate,
+                   CardStatus status,
+                   Money balance,
+                   BigDecimal shardedBalance,
+                   Money heldAmount,
+                   LocalDateTime createdAt,
+                   LocalDateTime updatedAt,
+                   Long createdBy,
+                   Long updatedBy,
+                   Boolean deleted) {
+
+        public Money totalBalance() {
+            return Card.totalBalance(balance, shardedBalance);
+        }
+
+        public Money availableBalance() {
+            return totalBalance().minus(heldAmount);
+        }
+    }
+
+    interface NumberHash {
+        Long getId();
+
+        byte[] getNumberHash();
+    }
+
+    interface Expiry {
+        Long getId();
+
+        LocalDate getExpiryDate();
+    }
+
+    interface CreditTarget {
+        Long getId();
+
+        int getBalanceShards();
+    }
 }
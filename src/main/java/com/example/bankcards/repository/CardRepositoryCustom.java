@@ -0,0 +1,23 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Card list reads that select only the {@link CardRepository.CardRow} columns: nothing is put in the
+ * persistence context, so there are no dirty-checking snapshots and no owner proxies to pay for.
+ * Any {@link Specification} on {@link Card}, such as {@code CardFilter}, narrows the rows.
+ */
+public interface CardRepositoryCustom {
+
+    Page<CardRepository.CardRow> findRows(Specification<Card> spec, Pageable pageable);
+
+    List<CardRepository.CardRow> findRows(Specification<Card> spec, Sort sort);
+
+    List<CardRepository.CardRow> findRows(Specification<Card> spec, Sort sort, int limit);
+}
@@ -0,0 +1,88 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.util.List;
+
+public class CardRepositoryCustomImpl implements CardRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<CardRepository.CardRow> findRows(Specification<Card> spec, Pageable pageable) {
+        TypedQuery<CardRepository.CardRow> query = this.rowQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        //the count is skipped when the first page is not full
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> this.count(spec));
+    }
+
+    @Override
+    public List<CardRepository.CardRow> findRows(Specification<Card> spec, Sort sort) {
+        return this.rowQuery(spec, sort).getResultList();
+    }
+
+    @Override
+    public List<CardRepository.CardRow> findRows(Specification<Card> spec, Sort sort, int limit) {
+        return this.rowQuery(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //select new CardRow(...) with the specification as the where clause
+    private TypedQuery<CardRepository.CardRow> rowQuery(Specification<Card> spec, Sort sort) {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<CardRepository.CardRow> query = cb.createQuery(CardRepository.CardRow.class);
+        Root<Card> root = query.from(Card.class);
+        query.select(cb.construct(CardRepository.CardRow.class,
+                root.get("id"),
+                root.get("lastFourDigits"),
+                root.get("ownerName"),
+                root.get("expiryDate"),
+                root.get("status"),
+                root.get("balance"),
+                root.get("shardedBalance"),
+                root.get("heldAmount"),
+                root.get("createdAt"),
+                root.get("updatedAt"),
+                root.get("createdBy"),
+                root.get("updatedBy"),
+                root.get("deleted")));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return this.entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Card> spec) {
+        CriteriaBuilder cb = this.entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Card> root = query.from(Card.class);
+        query.select(cb.count(root));
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return this.entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    //a row past its expiry counts as gone even before the purge job deletes it
+    Optional<IdempotencyRecord> findByIdempotencyKeyAndExpiresAtAfter(String idempotencyKey, LocalDateTime now);
+
+    //one chunk for the purge job, walks idx_idempotency_keys_expires_at
+    @Query("select r.idempotencyKey from IdempotencyRecord r where r.expiresAt <= :now order by r.expiresAt")
+    List<String> findExpiredKeys(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.idempotencyKey in :keys and r.expiresAt <= :now")
+    int deleteExpired(@Param("keys") Collection<String> keys, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.StandingOrder;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StandingOrderRepository extends JpaRepository<StandingOrder, Long> {
+
+    //FOR UPDATE SKIP LOCKED (lock timeout -2): nodes running at the same time claim disjoint chunks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select o from StandingOrder o where o.status = :status and o.nextRunAt <= :now order by o.nextRunAt")
+    List<StandingOrder> claimDue(@Param("status") StandingOrderStatus status,
+                                 @Param("now") LocalDateTime now,
+                                 Pageable pageable);
+
+    List<StandingOrder> findAllByCreatedByOrderByIdDesc(Long createdBy);
+
+    Optional<StandingOrder> findByIdAndCreatedBy(Long id, Long createdBy);
+}
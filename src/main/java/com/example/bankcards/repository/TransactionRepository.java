@@ -2,13 +2,55 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction,Long> {
 
+    //range scans on idx_transactions_card_created
+    List<Transaction> findAllByCardIdAndCreatedAtGreaterThanEqualAndCreatedAtLessThanOrderByCreatedAtAsc(
+            Long cardId, LocalDateTime from, LocalDateTime to);
+
+    @Query("select coalesce(sum(t.amount), 0) from Transaction t where t.card.id = :cardId and t.createdAt < :before")
+    BigDecimal sumAmountByCardIdBefore(@Param("cardId") Long cardId, @Param("before") LocalDateTime before);
+
+    @Query("select coalesce(sum(t.amount), 0) from Transaction t " +
+            "where t.card.id = :cardId and t.createdAt >= :from and t.createdAt < :to")
+    BigDecimal sumAmountByCardIdBetween(@Param("cardId") Long cardId,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to);
+
+    @Query("select coalesce(sum(t.amount), 0) from Transaction t where t.card.id = :cardId and t.createdAt >= :from")
+    BigDecimal sumAmountByCardIdSince(@Param("cardId") Long cardId, @Param("from") LocalDateTime from);
+
+    //card id and the sum of its legs since the given moment, only cards with legs are returned
+    @Query("select t.card.id, sum(t.amount) from Transaction t " +
+            "where t.card.id in :cardIds and t.createdAt >= :from group by t.card.id")
+    List<Object[]> sumAmountsByCardIdsSince(@Param("cardIds") Collection<Long> cardIds,
+                                            @Param("from") LocalDateTime from);
+
+    List<Transaction> findAllByTransferId(UUID transferId);
+
+    //card id, card row balance, balance shards total and ledger balance for an id range,
+    //streamed with a cursor; needs a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select c.id, c.balance, " +
+            "(select coalesce(sum(s.balance), 0) from CardBalanceShard s where s.cardId = c.id), " +
+            "coalesce(sum(t.amount), 0) from Card c left join Transaction t on t.card.id = c.id " +
+            "where c.id between :fromId and :toId group by c.id, c.balance order by c.id")
+    Stream<Object[]> streamLedgerTotals(@Param("fromId") Long fromId, @Param("toId") Long toId);
 }
@@ -1,21 +1,57 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.User;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsServiceImpl implements UserDetailsService {
     private final UserRepository userRepository;
+    //principals by username, so an authenticated request does not hit the users table
+    private final Cache<String, User> principals;
+
+    public CustomUserDetailsServiceImpl(UserRepository userRepository,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${bank.security.principal-cache.maximum-size:10000}") long maximumSize,
+                                        @Value("${bank.security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, "userPrincipals");
+    }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return this.userRepository.findByUsername(username)
-                .orElseThrow(() -> new UserNotFoundException("User not found with this username!"));
+        return this.principals.get(username, key -> this.userRepository.findByUsername(key)
+                .orElseThrow(() -> new UserNotFoundException("User not found with this username!")));
+    }
+
+    public void evict(String username) {
+        this.principals.invalidate(username);
+    }
+
+    public CacheStats stats() {
+        return this.principals.stats();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        evict(event.username());
     }
 }
@@ -1,12 +1,13 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,37 +16,42 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
-    private final JwtProvider jwtProvider;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final boolean statelessTokens;
+
+    public JwtFilter(UserDetailsService userDetailsService,
+                     VerifiedTokenCache verifiedTokenCache,
+                     TokenVersionRegistry tokenVersionRegistry,
+                     @Value("${bank.security.stateless-tokens.enabled:false}") boolean statelessTokens) {
+        this.userDetailsService = userDetailsService;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.statelessTokens = statelessTokens;
+    }
 
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain) throws ServletException, IOException {
         final String authorizationHeader = request.getHeader(SecurityConstants.AUTHORIZATION);
-        String username = null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith(SecurityConstants.BEARER)) {
-            jwt = authorizationHeader.substring(7);
-            try {
-                username = jwtProvider.extractUsername(jwt);
-                logger.debug(SecurityContextHolder.getContext().getAuthentication().getAuthorities().toString());
-            } catch (Exception e) {
-                System.out.println("INVALID JWT: " + e.getMessage());
-            }
-        }
         log.debug("Authorization header {} ", authorizationHeader);
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
 
-            if (jwtProvider.validateToken(jwt, userDetails.getUsername())) {
+        if (authorizationHeader != null
+                && authorizationHeader.startsWith(SecurityConstants.BEARER)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(SecurityConstants.BEARER.length());
+            //signature and expiry are verified at most once per request, and once per token while it is cached
+            Optional<VerifiedToken> verified = verifiedTokenCache.verify(jwt);
+            UserDetails userDetails = verified.map(this::resolvePrincipal).orElse(null);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -53,8 +59,28 @@ public class JwtFilter extends OncePerRequestFilter {
                 );
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else {
+                log.debug("Invalid or stale JWT on {}", request.getRequestURI());
             }
         }
         filterChain.doFilter(request, response);
     }
+
+    //in stateless mode the principal is rebuilt from the claims, null when the token version is stale
+    private UserDetails resolvePrincipal(VerifiedToken token) {
+        if (!statelessTokens || !token.hasIdentityClaims()) {
+            return this.userDetailsService.loadUserByUsername(token.subject());
+        }
+        if (!this.tokenVersionRegistry.isCurrent(token.userId(), token.tokenVersion())) {
+            return null;
+        }
+        User principal = User.builder()
+                .username(token.subject())
+                .role(token.role())
+                .userStatus(token.status())
+                .tokenVersion(token.tokenVersion())
+                .build();
+        principal.setId(token.userId());
+        return principal;
+    }
 }
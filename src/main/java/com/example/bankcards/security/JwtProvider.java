@@ -1,6 +1,9 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.entity.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -8,11 +11,11 @@ import io.jsonwebtoken.security.Keys;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Component
 public class JwtProvider {
@@ -22,10 +25,31 @@ public class JwtProvider {
 
     private static final long ACCESS_TOKEN_EXPIRATION_MS = 1000L * 60 * 60 * 8; // 8 h
 
+    //the built parser is immutable and thread-safe, one instance for all requests
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .setAllowedClockSkewSeconds(30)
+            .build();
+
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS = "status";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
     public String generateAccessToken(String username) {
         return buildToken(new HashMap<>(), username, ACCESS_TOKEN_EXPIRATION_MS);
     }
 
+    //carries everything the stateless filter needs to authorize without loading the user
+    public String generateAccessToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_STATUS, user.getUserStatus().name());
+        claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        return buildToken(claims, user.getUsername(), ACCESS_TOKEN_EXPIRATION_MS);
+    }
+
 
     public String buildToken(Map<String, Object> claims, String subject, long expirationMs) {
         return Jwts
@@ -54,9 +78,22 @@ public class JwtProvider {
                 .compact();
     }
 
+    //checks signature and expiry once; empty for a malformed, forged or expired token
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(VerifiedToken.from(PARSER.parseClaimsJws(token).getBody()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
     public Boolean validateToken(String token, String phone) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(phone) && !isTokenExpired(token));
+        return verify(token)
+                .map(verified -> verified.subject().equals(phone))
+                .orElse(false);
     }
 
     public String extractUsername(String token) {
@@ -64,12 +101,7 @@ public class JwtProvider {
     }
 
     public Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .setAllowedClockSkewSeconds(30)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return PARSER.parseClaimsJws(token).getBody();
     }
 
     public Boolean isTokenExpired(String token) {
@@ -89,17 +121,7 @@ public class JwtProvider {
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
-    }
-
-    private Key getSigningKey() {
-        return SECRET_KEY;
+        return extractAllClaims(token).getSubject();
     }
 
 }
\ No newline at end of file
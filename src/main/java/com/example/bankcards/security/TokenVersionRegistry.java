@@ -0,0 +1,41 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+
+/**
+ * Current token version per user id, used by the stateless filter to reject tokens
+ * issued before a password, username, role or status change.
+ * Versions are read from the users table and kept for a short TTL, so a change made on
+ * another node is picked up once the entry expires; changes on this node apply at once.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final LoadingCache<Long, Long> versions;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${bank.security.stateless-tokens.version-ttl-ms:5000}") long ttlMs,
+                                @Value("${bank.security.stateless-tokens.version-cache-size:100000}") long maximumSize) {
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maximumSize)
+                .build(userId -> userRepository.findTokenVersionById(userId).orElse(0L));
+    }
+
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        return tokenVersion >= versions.get(userId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        //merge with max, an older event delivered late must not lower the version
+        versions.asMap().merge(event.userId(), event.tokenVersion(), Math::max);
+    }
+}
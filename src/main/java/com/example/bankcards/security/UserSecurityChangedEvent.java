@@ -0,0 +1,6 @@
+package com.example.bankcards.security;
+
+//published when a user's password, username, role or status changes;
+//anything cached for the user under the old username must be dropped
+public record UserSecurityChangedEvent(Long userId, String username, long tokenVersion) {
+}
@@ -0,0 +1,52 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.UserStatus;
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Map;
+
+//claims of a token whose signature and expiry have already been checked
+public record VerifiedToken(String subject, Instant issuedAt, Instant expiresAt, Map<String, Object> claims) {
+
+    public VerifiedToken {
+        claims = Map.copyOf(claims);
+    }
+
+    static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() == null ? null : claims.getIssuedAt().toInstant(),
+                claims.getExpiration() == null ? null : claims.getExpiration().toInstant(),
+                claims);
+    }
+
+    public Object claim(String name) {
+        return claims.get(name);
+    }
+
+    //tokens issued before the stateless claims existed only have a subject
+    public boolean hasIdentityClaims() {
+        return claims.get(JwtProvider.CLAIM_USER_ID) instanceof Number
+                && claims.get(JwtProvider.CLAIM_ROLE) instanceof String
+                && claims.get(JwtProvider.CLAIM_STATUS) instanceof String
+                && claims.get(JwtProvider.CLAIM_TOKEN_VERSION) instanceof Number;
+    }
+
+    public Long userId() {
+        return ((Number) claims.get(JwtProvider.CLAIM_USER_ID)).longValue();
+    }
+
+    public Role role() {
+        return Role.valueOf((String) claims.get(JwtProvider.CLAIM_ROLE));
+    }
+
+    public UserStatus status() {
+        return UserStatus.valueOf((String) claims.get(JwtProvider.CLAIM_STATUS));
+    }
+
+    public long tokenVersion() {
+        return ((Number) claims.get(JwtProvider.CLAIM_TOKEN_VERSION)).longValue();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verified claims of recently seen access tokens, keyed by the SHA-256 of the token.
+ * An entry lives until the token expires or is pushed out by the size bound,
+ * so a reused token pays for signature verification once.
+ */
+@Slf4j
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private final JwtProvider jwtProvider;
+    private final boolean enabled;
+    private final Cache<ByteBuffer, VerifiedToken> cache;
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder verificationNanos = new LongAdder();
+
+    public VerifiedTokenCache(JwtProvider jwtProvider,
+                              MeterRegistry meterRegistry,
+                              @Value("${bank.security.token-cache.enabled:true}") boolean enabled,
+                              @Value("${bank.security.token-cache.maximum-size:100000}") long maximumSize) {
+        this.jwtProvider = jwtProvider;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verifiedTokens");
+        Gauge.builder("bank.security.token.cache.saved", this, VerifiedTokenCache::estimatedSavedSeconds)
+                .description("Estimated verification time saved by cache hits")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public Optional<VerifiedToken> verify(String token) {
+        if (!enabled || token == null) {
+            return jwtProvider.verify(token);
+        }
+        ByteBuffer key = digest(token);
+        VerifiedToken cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long started = System.nanoTime();
+        Optional<VerifiedToken> verified = jwtProvider.verify(token);
+        verificationNanos.add(System.nanoTime() - started);
+        verifications.increment();
+        //only good tokens are cached, garbage tokens cannot push real ones out
+        verified.filter(v -> v.expiresAt() != null).ifPresent(v -> cache.put(key, v));
+        return verified;
+    }
+
+    public void invalidateUser(String username) {
+        cache.asMap().values().removeIf(token -> token.subject().equals(username));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        invalidateUser(event.username());
+        log.debug("Dropped cached tokens of {}", event.username());
+    }
+
+    public double hitRate() {
+        return cache.stats().hitRate();
+    }
+
+    public double estimatedSavedSeconds() {
+        long count = verifications.sum();
+        if (count == 0) return 0;
+        double averageNanos = (double) verificationNanos.sum() / count;
+        return cache.stats().hitCount() * averageNanos / TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(ByteBuffer key, VerifiedToken value, long currentTime) {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(value.expiresAt().toEpochMilli() - Instant.now().toEpochMilli());
+            return Math.max(0, nanos);
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
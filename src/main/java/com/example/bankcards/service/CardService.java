@@ -7,6 +7,8 @@ import com.example.bankcards.filter.CardFilter;
 import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface CardService {
 
@@ -22,13 +24,33 @@ public interface CardService {
 
     ApiResponse getCardDetails(Long id);
 
-    ApiResponse fillCard(String card, BigDecimal amount);
+    default ApiResponse fillCard(String card, BigDecimal amount) {
+        return fillCard(card, amount, null);
+    }
 
-    ApiResponse transferMoneyBetweenCards(String from, String to, BigDecimal amount);
+    ApiResponse fillCard(String card, BigDecimal amount, String idempotencyKey);
+
+    default ApiResponse transferMoneyBetweenCards(String from, String to, BigDecimal amount) {
+        return transferMoneyBetweenCards(from, to, amount, null);
+    }
+
+    ApiResponse transferMoneyBetweenCards(String from, String to, BigDecimal amount, String idempotencyKey);
+
+    default ApiResponse transferMoneyBatch(List<CardDto.TransferDto> transfers) {
+        return transferMoneyBatch(transfers, null);
+    }
+
+    ApiResponse transferMoneyBatch(List<CardDto.TransferDto> transfers, String idempotencyKey);
 
     ApiResponse changeCardStatus(Long id, CardStatus cardStatus);
 
+    ApiResponse setBalanceShards(Long id, int shards);
+
     ApiResponse getAllCards(CardFilter filter, Pageable pageable);
 
+    ApiResponse getAllCards(CardFilter filter, String cursor, int size, boolean withTotal);
+
     ApiResponse getBalance(Long id);
+
+    ApiResponse getBalanceAt(Long id, LocalDateTime at);
 }
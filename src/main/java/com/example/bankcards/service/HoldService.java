@@ -0,0 +1,17 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+
+import java.math.BigDecimal;
+
+public interface HoldService {
+
+    ApiResponse authorize(String cardFrom, String cardTo, BigDecimal amount);
+
+    //a null amount captures the whole hold
+    ApiResponse capture(Long holdId, BigDecimal amount);
+
+    ApiResponse release(Long holdId);
+
+    ApiResponse getHold(Long holdId);
+}
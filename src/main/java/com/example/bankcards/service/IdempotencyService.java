@@ -0,0 +1,14 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+
+import java.util.function.Function;
+
+public interface IdempotencyService {
+
+    //runs the action at most once per key; the action gets the scoped key and must store its response through store()
+    ApiResponse execute(String idempotencyKey, String operation, String fingerprint, Function<String, ApiResponse> action);
+
+    //saves the response under the scoped key in the caller's transaction and returns it unchanged
+    ApiResponse store(String scopedKey, ApiResponse response);
+}
@@ -0,0 +1,13 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import org.springframework.data.domain.Pageable;
+
+import java.util.UUID;
+
+public interface ReconciliationService {
+
+    ApiResponse runReconciliation();
+
+    ApiResponse getMismatches(UUID runId, Pageable pageable);
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.StandingOrderDto;
+
+public interface StandingOrderService {
+
+    ApiResponse createStandingOrder(StandingOrderDto.CreateStandingOrderDto dto);
+
+    ApiResponse cancelStandingOrder(Long id);
+
+    ApiResponse getMyStandingOrders();
+
+    ApiResponse runDueOrders();
+}
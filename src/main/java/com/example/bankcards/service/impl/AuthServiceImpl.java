@@ -10,10 +10,12 @@ import com.example.bankcards.entity.enums.UserStatus;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.UserSecurityChangedEvent;
 import com.example.bankcards.service.AuthService;
 import com.example.bankcards.util.RestConstants;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -37,6 +39,7 @@ public class AuthServiceImpl implements AuthService {
     private final UserRepository userRepository;
     private final JwtProvider jwtProvider;
     private final UserMapper userMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public ApiResponse login(AuthDto.LoginDto dto) {
@@ -54,7 +57,7 @@ public class AuthServiceImpl implements AuthService {
                     .data(e.getMessage())
                     .build();
         }
-        String token = this.jwtProvider.generateAccessToken(userDetails.getUsername());
+        String token = this.jwtProvider.generateAccessToken(user);
         return ApiResponse
                 .builder()
                 .status(HttpStatus.OK)
@@ -106,8 +109,11 @@ public class AuthServiceImpl implements AuthService {
                     .message(RestConstants.FAILED_TO_UPDATE)
                     .build();
         }
+        String oldUsername = existingUser.getUsername();
         this.userMapper.toUpdate(dto, existingUser);
+        existingUser.setTokenVersion(existingUser.getTokenVersion() + 1);
         this.userRepository.save(existingUser);
+        this.publishSecurityChange(existingUser, oldUsername);
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message(RestConstants.USER_UPDATED)
@@ -166,7 +172,9 @@ public class AuthServiceImpl implements AuthService {
         }
 
         user.setPassword(this.passwordEncoder.encode(dto.getNewPassword()));
+        user.setTokenVersion(user.getTokenVersion() + 1);
         this.userRepository.save(user);
+        this.publishSecurityChange(user, user.getUsername());
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message(RestConstants.PASSWORD_SUCCESSFULLY_UPDATED)
@@ -179,8 +187,11 @@ public class AuthServiceImpl implements AuthService {
 
         User user = this.userRepository.findByIdAndDeletedFalse(userId)
                 .orElseThrow(() -> new UserNotFoundException(RestConstants.USER_NOT_FOUND));
+        String oldUsername = user.getUsername();
         this.userMapper.toUpdate(dto, user);
+        user.setTokenVersion(user.getTokenVersion() + 1);
         User saved = this.userRepository.save(user);
+        this.publishSecurityChange(user, oldUsername);
 
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
@@ -201,4 +212,9 @@ public class AuthServiceImpl implements AuthService {
                 .build();
     }
 
+    //caches and the token version table drop what they hold for the old username
+    private void publishSecurityChange(User user, String oldUsername) {
+        this.eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), oldUsername, user.getTokenVersion()));
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceSnapshot;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Point-in-time card balances. A balance at T is the nearest snapshot at or before T plus the
+ * ledger legs between the two; without a snapshot the current balance is walked back instead.
+ * Both paths read under REPEATABLE READ, which gives one consistent view without locking cards.
+ */
+@Service
+public class CardBalanceHistory {
+
+    private final CardRepository cardRepository;
+    private final TransactionRepository transactionRepository;
+    private final CardBalanceSnapshotRepository snapshotRepository;
+
+    public CardBalanceHistory(CardRepository cardRepository,
+                              TransactionRepository transactionRepository,
+                              CardBalanceSnapshotRepository snapshotRepository) {
+        this.cardRepository = cardRepository;
+        this.transactionRepository = transactionRepository;
+        this.snapshotRepository = snapshotRepository;
+    }
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public BigDecimal balanceAt(Long cardId, LocalDateTime at) {
+        Card card = this.cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + cardId));
+        if (card.getCreatedAt() != null && at.isBefore(card.getCreatedAt())) {
+            return BigDecimal.ZERO;
+        }
+        return this.snapshotRepository.findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(cardId, at)
+                .map(snapshot -> snapshot.getBalance()
+                        .add(this.transactionRepository.sumAmountByCardIdBetween(cardId, snapshot.getAsOf(), at)))
+                .orElseGet(() -> card.getTotalBalance().toBigDecimal()
+                        .subtract(this.transactionRepository.sumAmountByCardIdSince(cardId, at)));
+    }
+
+    //current balance minus the legs written since asOf, read in one snapshot; returns the number of rows written
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int snapshotChunk(List<Long> cardIds, LocalDateTime asOf) {
+        Set<Long> done = new HashSet<>(this.snapshotRepository.findCardIdsWithSnapshot(cardIds, asOf));
+        Map<Long, BigDecimal> sinceAsOf = new HashMap<>();
+        for (Object[] row : this.transactionRepository.sumAmountsByCardIdsSince(cardIds, asOf)) {
+            sinceAsOf.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        List<CardBalanceSnapshot> snapshots = new ArrayList<>();
+        for (Card card : this.cardRepository.findAllById(cardIds)) {
+            if (done.contains(card.getId())) continue;
+            if (card.getCreatedAt() != null && !card.getCreatedAt().isBefore(asOf)) continue;
+            snapshots.add(CardBalanceSnapshot.builder()
+                    .cardId(card.getId())
+                    .asOf(asOf)
+                    .balance(card.getTotalBalance().toBigDecimal().subtract(sinceAsOf.getOrDefault(card.getId(), BigDecimal.ZERO)))
+                    .build());
+        }
+        this.snapshotRepository.saveAll(snapshots);
+        return snapshots.size();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardBalanceShard;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.util.Money;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sub-balances of hot cards. A credit to a sharded card locks one of its K shard rows instead of
+ * the card row, so concurrent credits contend K times less. Debits still go through the card row
+ * and pull the shards back into it only when the row alone cannot cover the amount.
+ * <p>
+ * Lock order is card rows first (ascending id), then shard rows (ascending shard number);
+ * a credit locks a single shard as the last lock of its transaction.
+ * Callers run inside a transaction.
+ */
+@Service
+public class CardBalanceShards {
+
+    private final CardBalanceShardRepository shardRepository;
+
+    public CardBalanceShards(CardBalanceShardRepository shardRepository) {
+        this.shardRepository = shardRepository;
+    }
+
+    public void credit(Card card, Money amount) {
+        int shardNo = ThreadLocalRandom.current().nextInt(card.getBalanceShards());
+        //the shard count was read without a lock; a concurrent reshard may have removed this shard
+        CardBalanceShard shard = this.shardRepository.findByCardIdAndShardNoForUpdate(card.getId(), shardNo)
+                .orElseThrow(() -> new PessimisticLockingFailureException(
+                        "Balance shard " + shardNo + " of card " + card.getId() + " is gone"));
+        shard.setBalance(shard.getBalance().plus(amount));
+        this.shardRepository.save(shard);
+    }
+
+    //the card row must already be locked
+    public boolean ensureFunds(Card card, Money amount) {
+        if (!card.getBalance().isLessThan(amount)) return true;
+        if (card.getBalanceShards() == 0) return false;
+        this.consolidate(this.shardRepository.findAllByCardIdForUpdate(card.getId()), card);
+        return !card.getBalance().isLessThan(amount);
+    }
+
+    //the card row must already be locked; the caller saves the card
+    public void reshard(Card card, int shards) {
+        List<CardBalanceShard> existing = this.shardRepository.findAllByCardIdForUpdate(card.getId());
+        this.consolidate(existing, card);
+        //shards below the new count are kept (now empty), the rest are removed, missing ones created
+        boolean[] present = new boolean[shards];
+        List<CardBalanceShard> removed = new ArrayList<>();
+        for (CardBalanceShard shard : existing) {
+            if (shard.getShardNo() < shards) {
+                present[shard.getShardNo()] = true;
+            } else {
+                removed.add(shard);
+            }
+        }
+        List<CardBalanceShard> created = new ArrayList<>();
+        for (int shardNo = 0; shardNo < shards; shardNo++) {
+            if (!present[shardNo]) {
+                created.add(CardBalanceShard.builder()
+                        .cardId(card.getId())
+                        .shardNo(shardNo)
+                        .balance(Money.ZERO)
+                        .build());
+            }
+        }
+        this.shardRepository.deleteAll(removed);
+        this.shardRepository.saveAll(created);
+        card.setBalanceShards(shards);
+    }
+
+    private void consolidate(List<CardBalanceShard> shards, Card card) {
+        Money parked = Money.ZERO;
+        for (CardBalanceShard shard : shards) {
+            parked = parked.plus(shard.getBalance());
+            shard.setBalance(Money.ZERO);
+        }
+        if (parked.signum() != 0) {
+            card.setBalance(card.getBalance().plus(parked));
+            card.setShardedBalance(BigDecimal.ZERO);
+            this.shardRepository.saveAll(shards);
+        }
+    }
+}
@@ -0,0 +1,606 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Optional in-memory index for the admin keyword search, so get-all-cards can answer every keystroke
+ * from memory and load only the page it returns. Each card is a document ordinal; its id, lower-cased
+ * owner name, last four digits and a status/deleted byte sit in parallel arrays. The name and the digits
+ * are cut into trigrams whose posting lists are ascending int arrays of ordinals, and a trigram hit is
+ * only a candidate: the stored text is checked the same way {@link com.example.bankcards.filter.CardFilter}
+ * checks the row.
+ * <p>
+ * Built by streaming cards at startup, then kept current by
+ * {@link com.example.bankcards.entity.listener.CardSearchIndexListener} once each write commits.
+ * Set-based updates (the expiry jobs) and other nodes do not go through the listener, so cards updated
+ * since the last refresh are read back on a timer as well. Rows deleted outright by another node or by
+ * SQL leave no updated_at behind; a slower reconcile walks the card ids to drop them.
+ */
+@Slf4j
+@Component
+public class CardSearchIndex {
+
+    private static final int GRAM = 3;
+    //trigrams of the last four digits live in the same posting map, told apart by this bit
+    private static final long DIGITS_FIELD = 1L << 62;
+    private static final int STATUS_MASK = 0x3f;
+    private static final int DELETED = 0x40;
+    private static final int DEAD = 0x80;
+    private static final short NO_DIGITS = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NONE = new int[0];
+    //updatedAt is stamped before commit, so each refresh looks back a little further than the last one
+    private static final long REFRESH_OVERLAP_SECONDS = 30;
+
+    private final CardRepository cardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Timer searchTimer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //document ordinal -> card; an ordinal whose name or digits change is left DEAD and the card re-added
+    private long[] ids;
+    private String[] names;
+    private short[] lastFour;
+    private byte[] flags;
+    private int docs;
+    private int dead;
+    //card id -> live ordinal, -1 once removed
+    private LongIntMap ordinals;
+    //trigram -> posting list slot
+    private LongIntMap grams;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int postingLists;
+
+    private volatile boolean ready;
+    //-1 once cards were added or removed, measured again on the next read
+    private volatile long bytesPerCard = -1;
+    private LocalDateTime lastRefreshAt;
+
+    public CardSearchIndex(CardRepository cardRepository,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${bank.card.search-index.enabled:false}") boolean enabled) {
+        this.cardRepository = cardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+        this.searchTimer = Timer.builder("bank.card_search.search").register(meterRegistry);
+        Gauge.builder("bank.card_search.cards", this, CardSearchIndex::size).register(meterRegistry);
+        Gauge.builder("bank.card_search.bytes_per_card", this, CardSearchIndex::bytesPerCard).register(meterRegistry);
+        this.reset(INITIAL_CAPACITY);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) return;
+        LocalDateTime started = LocalDateTime.now();
+        long startedNanos = System.nanoTime();
+        int loaded = this.stream(this.cardRepository::streamSearchRows);
+        this.lastRefreshAt = started;
+        this.ready = true;
+        log.info("Card search index built from {} cards in {} ms, {} bytes per card",
+                loaded, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos), this.bytesPerCard());
+    }
+
+    //picks up what the listener cannot see and drops dead ordinals once they outnumber the live ones
+    @Scheduled(fixedDelayString = "${bank.card.search-index.refresh-ms:30000}",
+            initialDelayString = "${bank.card.search-index.refresh-ms:30000}")
+    public synchronized void refresh() {
+        if (!enabled || !ready) return;
+        LocalDateTime started = LocalDateTime.now();
+        LocalDateTime since = this.lastRefreshAt.minusSeconds(REFRESH_OVERLAP_SECONDS);
+        int read = this.stream(() -> this.cardRepository.streamSearchRowsUpdatedSince(since));
+        this.compactIfSparse();
+        this.lastRefreshAt = started;
+        log.debug("Card search index refreshed: {} cards read, {} indexed, {} bytes per card",
+                read, this.size(), this.bytesPerCard());
+    }
+
+    //drops cards whose row is gone: ids indexed before the walk starts and not met in it
+    @Scheduled(fixedDelayString = "${bank.card.search-index.reconcile-ms:600000}",
+            initialDelayString = "${bank.card.search-index.reconcile-ms:600000}")
+    public synchronized void reconcile() {
+        if (!enabled || !ready) return;
+        long[] indexed = this.liveIds();
+        boolean[] present = new boolean[indexed.length];
+        this.transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Long> rows = this.cardRepository.streamIds()) {
+                Iterator<Long> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    int at = Arrays.binarySearch(indexed, iterator.next());
+                    if (at >= 0) {
+                        present[at] = true;
+                    }
+                }
+            }
+        });
+        int removed = 0;
+        for (int i = 0; i < indexed.length; i++) {
+            if (!present[i]) {
+                this.remove(indexed[i]);
+                removed++;
+            }
+        }
+        this.compactIfSparse();
+        if (removed > 0) {
+            log.info("Card search index dropped {} cards deleted from the database", removed);
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public long bytesPerCard() {
+        long bytes = this.bytesPerCard;
+        return bytes < 0 ? this.measure() : bytes;
+    }
+
+    //ids of the matching cards, newest first
+    public long[] search(String keyword, CardStatus status, boolean deleted) {
+        String kw = keyword.trim().toLowerCase();
+        long startedNanos = System.nanoTime();
+        this.lock.readLock().lock();
+        try {
+            int[] candidates = this.candidates(kw);
+            int count = candidates == null ? this.docs : candidates.length;
+            long[] found = new long[count];
+            int matched = 0;
+            for (int i = 0; i < count; i++) {
+                int doc = candidates == null ? i : candidates[i];
+                if (this.accepts(doc, status, deleted) && this.matches(doc, kw)) {
+                    found[matched++] = this.ids[doc];
+                }
+            }
+            long[] result = Arrays.copyOf(found, matched);
+            Arrays.sort(result);
+            for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+                long id = result[i];
+                result[i] = result[j];
+                result[j] = id;
+            }
+            return result;
+        } finally {
+            this.lock.readLock().unlock();
+            this.searchTimer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    //called for every card written; balance-only updates are dropped here, the rest applied after commit
+    public void onSaved(Card card) {
+        if (!enabled || card.getId() == null) return;
+        long id = card.getId();
+        String name = this.normalize(card.getOwnerName());
+        short digits = this.digits(card.getLastFourDigits());
+        byte flag = this.flag(card.getStatus(), card.getDeleted());
+        if (this.isCurrent(id, name, digits, flag)) return;
+        this.afterCommit(() -> this.put(id, name, digits, flag));
+    }
+
+    public void onRemoved(Card card) {
+        if (!enabled || card.getId() == null) return;
+        long id = card.getId();
+        this.afterCommit(() -> this.remove(id));
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.docs - this.dead;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private int stream(Supplier<Stream<Object[]>> rows) {
+        Integer read = this.transactionTemplate.execute(status -> {
+            int count = 0;
+            try (Stream<Object[]> stream = rows.get()) {
+                Iterator<Object[]> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    this.put((Long) row[0], this.normalize((String) row[1]), this.digits((String) row[2]),
+                            this.flag((CardStatus) row[3], (Boolean) row[4]));
+                    count++;
+                }
+            }
+            return count;
+        });
+        return read == null ? 0 : read;
+    }
+
+    private boolean isCurrent(long id, String name, short digits, byte flag) {
+        this.lock.readLock().lock();
+        try {
+            int doc = this.ordinals.get(id);
+            return doc >= 0 && this.flags[doc] == flag && this.lastFour[doc] == digits && this.names[doc].equals(name);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void put(long id, String name, short digits, byte flag) {
+        this.lock.writeLock().lock();
+        try {
+            int doc = this.ordinals.get(id);
+            if (doc >= 0 && this.lastFour[doc] == digits && this.names[doc].equals(name)) {
+                //status and deleted are not in the postings, so they are changed in place
+                this.flags[doc] = flag;
+                return;
+            }
+            if (doc >= 0) {
+                this.flags[doc] = (byte) DEAD;
+                this.dead++;
+            }
+            this.add(id, name, digits, flag);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    //ids of the live ordinals, ascending
+    private long[] liveIds() {
+        this.lock.readLock().lock();
+        try {
+            long[] live = new long[this.docs - this.dead];
+            int count = 0;
+            for (int doc = 0; doc < this.docs; doc++) {
+                if ((this.flags[doc] & DEAD) == 0) {
+                    live[count++] = this.ids[doc];
+                }
+            }
+            Arrays.sort(live, 0, count);
+            return count == live.length ? live : Arrays.copyOf(live, count);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private void remove(long id) {
+        this.lock.writeLock().lock();
+        try {
+            int doc = this.ordinals.get(id);
+            if (doc < 0) return;
+            this.flags[doc] = (byte) DEAD;
+            this.dead++;
+            this.ordinals.put(id, -1);
+            this.bytesPerCard = -1;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    //needs the write lock
+    private void add(long id, String name, short digits, byte flag) {
+        if (this.docs == this.ids.length) {
+            int capacity = this.ids.length * 2;
+            this.ids = Arrays.copyOf(this.ids, capacity);
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.lastFour = Arrays.copyOf(this.lastFour, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+        }
+        int doc = this.docs++;
+        this.bytesPerCard = -1;
+        this.ids[doc] = id;
+        this.names[doc] = name;
+        this.lastFour[doc] = digits;
+        this.flags[doc] = flag;
+        this.ordinals.put(id, doc);
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            this.post(gram(name, i), doc);
+        }
+        if (digits != NO_DIGITS) {
+            String text = digitsText(digits);
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                this.post(DIGITS_FIELD | gram(text, i), doc);
+            }
+        }
+    }
+
+    //ordinals only grow, so a posting list stays sorted and a repeated trigram is always its last entry
+    private void post(long gram, int doc) {
+        int slot = this.grams.get(gram);
+        if (slot < 0) {
+            if (this.postingLists == this.postings.length) {
+                this.postings = Arrays.copyOf(this.postings, this.postingLists * 2);
+                this.postingSizes = Arrays.copyOf(this.postingSizes, this.postingLists * 2);
+            }
+            slot = this.postingLists++;
+            this.postings[slot] = new int[4];
+            this.grams.put(gram, slot);
+        }
+        int size = this.postingSizes[slot];
+        int[] list = this.postings[slot];
+        if (size > 0 && list[size - 1] == doc) return;
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1) + 1);
+            this.postings[slot] = list;
+        }
+        list[size] = doc;
+        this.postingSizes[slot] = size + 1;
+    }
+
+    private void compactIfSparse() {
+        this.lock.writeLock().lock();
+        try {
+            if (this.dead < INITIAL_CAPACITY || this.dead * 2 < this.docs) return;
+            long[] oldIds = this.ids;
+            String[] oldNames = this.names;
+            short[] oldLastFour = this.lastFour;
+            byte[] oldFlags = this.flags;
+            int oldDocs = this.docs;
+            this.reset(Math.max(INITIAL_CAPACITY, oldDocs - this.dead));
+            for (int doc = 0; doc < oldDocs; doc++) {
+                if ((oldFlags[doc] & DEAD) == 0) {
+                    this.add(oldIds[doc], oldNames[doc], oldLastFour[doc], oldFlags[doc]);
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void reset(int capacity) {
+        this.ids = new long[capacity];
+        this.names = new String[capacity];
+        this.lastFour = new short[capacity];
+        this.flags = new byte[capacity];
+        this.docs = 0;
+        this.dead = 0;
+        this.ordinals = new LongIntMap(capacity);
+        this.grams = new LongIntMap(INITIAL_CAPACITY);
+        this.postings = new int[INITIAL_CAPACITY][];
+        this.postingSizes = new int[INITIAL_CAPACITY];
+        this.postingLists = 0;
+    }
+
+    //the same shapes as CardFilter: four digits match the card number exactly, shorter digit runs either
+    //field, anything else the owner name; null means no trigram narrows it down and every ordinal is checked
+    private int[] candidates(String kw) {
+        boolean digits = isDigits(kw);
+        if (digits && kw.length() == 4) {
+            return this.intersect(kw, DIGITS_FIELD);
+        }
+        if (kw.length() < GRAM) {
+            return null;
+        }
+        int[] byName = this.intersect(kw, 0);
+        if (!digits || kw.length() > 4) {
+            return byName;
+        }
+        return union(byName, this.intersect(kw, DIGITS_FIELD));
+    }
+
+    private int[] intersect(String kw, long field) {
+        int count = kw.length() - GRAM + 1;
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            slots[i] = this.grams.get(field | gram(kw, i));
+            if (slots[i] < 0) return NONE;
+        }
+        //start from the shortest list, every other one can only remove candidates
+        int shortest = 0;
+        for (int i = 1; i < count; i++) {
+            if (this.postingSizes[slots[i]] < this.postingSizes[slots[shortest]]) shortest = i;
+        }
+        int[] result = Arrays.copyOf(this.postings[slots[shortest]], this.postingSizes[slots[shortest]]);
+        int size = result.length;
+        for (int i = 0; i < count && size > 0; i++) {
+            if (i == shortest) continue;
+            int[] list = this.postings[slots[i]];
+            int listSize = this.postingSizes[slots[i]];
+            int kept = 0;
+            for (int r = 0, l = 0; r < size && l < listSize; ) {
+                if (result[r] < list[l]) {
+                    r++;
+                } else if (result[r] > list[l]) {
+                    l++;
+                } else {
+                    result[kept++] = result[r];
+                    r++;
+                    l++;
+                }
+            }
+            size = kept;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[size++] = next;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private boolean accepts(int doc, CardStatus status, boolean deleted) {
+        int flag = this.flags[doc] & 0xff;
+        if ((flag & DEAD) != 0 || ((flag & DELETED) != 0) != deleted) return false;
+        return status == null || (flag & STATUS_MASK) == status.ordinal();
+    }
+
+    private boolean matches(int doc, String kw) {
+        boolean digits = isDigits(kw);
+        short lastFour = this.lastFour[doc];
+        if (digits && kw.length() == 4) {
+            return lastFour != NO_DIGITS && digitsText(lastFour).equals(kw);
+        }
+        if (this.names[doc].contains(kw)) {
+            return true;
+        }
+        return digits && kw.length() < 4 && lastFour != NO_DIGITS && digitsText(lastFour).contains(kw);
+    }
+
+    private String normalize(String ownerName) {
+        return ownerName == null ? "" : ownerName.toLowerCase();
+    }
+
+    //the last four characters of the masked number, when they are digits
+    private short digits(String masked) {
+        if (masked == null || masked.length() < 4) return NO_DIGITS;
+        String tail = masked.substring(masked.length() - 4);
+        return isDigits(tail) ? Short.parseShort(tail) : NO_DIGITS;
+    }
+
+    private byte flag(CardStatus status, Boolean deleted) {
+        int flag = status == null ? STATUS_MASK : status.ordinal();
+        return (byte) (Boolean.TRUE.equals(deleted) ? flag | DELETED : flag);
+    }
+
+    //rough retained size: arrays at their capacity, names as Latin-1 strings, the two hash maps;
+    //cached until cards are added or removed
+    private long measure() {
+        this.lock.readLock().lock();
+        try {
+            int live = this.docs - this.dead;
+            if (live == 0) {
+                this.bytesPerCard = 0;
+                return 0;
+            }
+            long bytes = this.ids.length * 8L + this.names.length * 4L + this.lastFour.length * 2L + this.flags.length;
+            for (int doc = 0; doc < this.docs; doc++) {
+                bytes += 40 + this.names[doc].length();
+            }
+            bytes += this.ordinals.bytes() + this.grams.bytes() + this.postings.length * 8L;
+            for (int slot = 0; slot < this.postingLists; slot++) {
+                bytes += 16 + this.postings[slot].length * 4L;
+            }
+            //stored under the lock, so the next add or remove is sure to mark it stale again
+            this.bytesPerCard = bytes / live;
+            return bytes / live;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private static long gram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static String digitsText(short digits) {
+        return new String(new char[]{
+                (char) ('0' + digits / 1000), (char) ('0' + digits / 100 % 10),
+                (char) ('0' + digits / 10 % 10), (char) ('0' + digits % 10)});
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return !text.isEmpty();
+    }
+
+    //open addressing over two primitive arrays; 0 is the empty key, neither card ids nor trigrams use it
+    private static final class LongIntMap {
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+        }
+
+        int get(long key) {
+            int mask = this.keys.length - 1;
+            for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+                long found = this.keys[slot];
+                if (found == key) return this.values[slot];
+                if (found == 0) return -1;
+            }
+        }
+
+        void put(long key, int value) {
+            if ((this.size + 1) * 2 > this.keys.length) {
+                this.grow();
+            }
+            int mask = this.keys.length - 1;
+            int slot = mix(key) & mask;
+            while (this.keys[slot] != 0 && this.keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (this.keys[slot] == 0) {
+                this.keys[slot] = key;
+                this.size++;
+            }
+            this.values[slot] = value;
+        }
+
+        long bytes() {
+            return this.keys.length * 12L;
+        }
+
+        private void grow() {
+            long[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+            this.keys = new long[oldKeys.length * 2];
+            this.values = new int[oldKeys.length * 2];
+            this.size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    this.put(oldKeys[slot], oldValues[slot]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
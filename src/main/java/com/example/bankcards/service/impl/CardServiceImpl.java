@@ -7,7 +7,6 @@ import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.enums.CardStatus;
-import com.example.bankcards.entity.enums.TransactionType;
 import com.example.bankcards.exception.CardBlockedException;
 import com.example.bankcards.exception.CardExpiredException;
 import com.example.bankcards.exception.CardNotFoundException;
@@ -17,40 +16,86 @@ import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.util.CardChecks;
 import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.LedgerEntries;
+import com.example.bankcards.util.Money;
 import com.example.bankcards.util.RestConstants;
-import jakarta.transaction.Transactional;
+import com.example.bankcards.util.TransactionRetryTemplate;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 
 @Service
 public class CardServiceImpl implements CardService {
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Sort ID_DESC = Sort.by(Sort.Direction.DESC, "id");
+    private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+
     private final CardRepository cardRepository;
     private final EncryptionService encryptionService;
     private final CardMapper cardMapper;
     private final UserRepository userRepository;
     private final TransactionRepository transactionRepository;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final IdempotencyService idempotencyService;
+    private final CardBalanceHistory cardBalanceHistory;
+    private final CardBalanceShards cardBalanceShards;
+    private final ShardedTransferExecutor transferExecutor;
+    private final TransferNettingStage transferNetting;
+    private final CardSearchIndex cardSearchIndex;
 
     public CardServiceImpl(
             CardRepository cardRepository,
             EncryptionService encryptionService,
             CardMapper cardMapper,
-            UserRepository userRepository, TransactionRepository transactionRepository) {
+            UserRepository userRepository, TransactionRepository transactionRepository,
+            TransactionRetryTemplate transactionRetryTemplate,
+            IdempotencyService idempotencyService,
+            CardBalanceHistory cardBalanceHistory,
+            CardBalanceShards cardBalanceShards,
+            ShardedTransferExecutor transferExecutor,
+            TransferNettingStage transferNetting,
+            CardSearchIndex cardSearchIndex) {
         this.cardRepository = cardRepository;
         this.encryptionService = encryptionService;
         this.cardMapper = cardMapper;
         this.userRepository = userRepository;
         this.transactionRepository = transactionRepository;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.idempotencyService = idempotencyService;
+        this.cardBalanceHistory = cardBalanceHistory;
+        this.cardBalanceShards = cardBalanceShards;
+        this.transferExecutor = transferExecutor;
+        this.transferNetting = transferNetting;
+        this.cardSearchIndex = cardSearchIndex;
     }
 
     @Override
@@ -62,13 +107,15 @@ public class CardServiceImpl implements CardService {
         User owner = userRepository.findById(dto.getUserId())
                 .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + dto.getUserId()));
 
-        if (this.checkCardExisting(encrypt)) {
+        byte[] numberHash = this.encryptionService.blindIndex(cardNumber);
+        if (this.checkCardExisting(numberHash)) {
             return ApiResponse.builder()
                     .status(HttpStatus.BAD_REQUEST)
                     .message("This card has already been created!")
                     .build();
         }
         Card card = this.cardMapper.toEntity(dto, encrypt, maskedNumber, owner);
+        card.setNumberHash(numberHash);
         Card saved = this.cardRepository.save(card);
         CardDto cardDto = this.cardMapper.toDto(saved);
         return ApiResponse.builder()
@@ -78,8 +125,8 @@ public class CardServiceImpl implements CardService {
                 .build();
     }
 
-    private boolean checkCardExisting(String encrypt) {
-        return this.cardRepository.existsByEncryptedNumber(encrypt);
+    private boolean checkCardExisting(byte[] numberHash) {
+        return this.cardRepository.existsByNumberHash(numberHash);
     }
 
     @Override
@@ -130,7 +177,8 @@ public class CardServiceImpl implements CardService {
                     .message("To see own cards, please login to the system!")
                     .build();
         }
-        List<Card> cardList = this.cardRepository.findAllByOwnerId(owner.getId());
+        List<CardRepository.CardRow> cardList = this.cardRepository.findRows(
+                (root, query, cb) -> cb.equal(root.get("owner").get("id"), owner.getId()), Sort.unsorted());
 
         if (cardList.isEmpty()) {
             return ApiResponse.builder()
@@ -138,7 +186,7 @@ public class CardServiceImpl implements CardService {
                     .data(new ArrayList<>())
                     .build();
         }
-        List<CardDto> dtoList = this.cardMapper.toDto(cardList);
+        List<CardDto> dtoList = this.cardMapper.toRowDto(cardList);
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message(RestConstants.SUCCESS)
@@ -159,20 +207,43 @@ public class CardServiceImpl implements CardService {
                 .build();
     }
 
-    @Transactional
     @Override
-    public ApiResponse fillCard(String cardNumber, BigDecimal amount) {
+    public ApiResponse fillCard(String cardNumber, BigDecimal amount, String idempotencyKey) {
         if (this.checkAmount(amount)) {
             return ApiResponse.builder()
                     .status(HttpStatus.BAD_REQUEST)
                     .message("Card cannot be negative or zero")
                     .build();
         }
-        String encrypt = this.encryptionService.encrypt(cardNumber);
-        Card card = this.cardRepository.findByEncryptedNumber(encrypt)
+        Money money = CardChecks.toMoney(amount);
+        if (money == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message(CardChecks.INVALID_AMOUNT)
+                    .build();
+        }
+        byte[] numberHash = this.encryptionService.blindIndex(cardNumber);
+        //single-writer mode routes by card id, so the id is looked up before the work is queued
+        long[] cardIds = this.transferExecutor.isEnabled()
+                ? new long[]{this.findCardId(numberHash, "Card not found")}
+                : null;
+        return this.runIdempotent(idempotencyKey, "fill-card",
+                () -> HEX.formatHex(numberHash) + "|" + amount.stripTrailingZeros().toPlainString(),
+                cardIds,
+                () -> this.applyFill(numberHash, money, amount));
+    }
+
+    //requested is the amount as the client sent it, echoed back in the message
+    private ApiResponse applyFill(byte[] numberHash, Money amount, BigDecimal requested) {
+        CardRepository.CreditTarget target = this.cardRepository.findCreditTargetByNumberHash(numberHash)
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        //a plain card is credited under its row lock, so concurrent fills queue instead of exhausting
+        //their @Version retries; a sharded card is only read, the credit lands on one of its shards
+        Card card = target.getBalanceShards() > 0
+                ? this.cardRepository.findById(target.getId()).orElseThrow(() -> new CardNotFoundException("Card not found"))
+                : this.lockCard(target.getId());
         //check if the card is expired or blocked!
-        this.validateCardForTransaction(card);
+        CardChecks.validateForTransaction(card);
 
         if (card.getStatus() != CardStatus.ACTIVE) {
             throw new CardNotFoundException("Cannot fill inactive or blocked card");
@@ -181,73 +252,336 @@ public class CardServiceImpl implements CardService {
         if (card.getExpiryDate().isBefore(LocalDate.now())) {
             throw new CardNotFoundException("Cannot fill inactive or blocked card");
         }
-        card.setBalance(card.getBalance().add(amount));
-        card = this.cardRepository.save(card);
-        Transaction transaction = new Transaction();
-        transaction.setAmount(amount);
-        transaction.setCard(card);
-        transaction.setTransactionType(TransactionType.DEPOSIT);
-        transaction.setDescription("Card fill operation!");
-        transactionRepository.save(transaction);
+        if (card.getBalanceShards() > 0) {
+            //hot card: the credit lands on one balance shard and the card row is left alone
+            this.cardBalanceShards.credit(card, amount);
+        } else {
+            card.setBalance(card.getBalance().plus(amount));
+            card = this.cardRepository.save(card);
+        }
+        this.transactionRepository.saveAll(LedgerEntries.deposit(card, amount));
 
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
-                .message("Card successfully filled with " + amount)
+                .message("Card successfully filled with " + requested)
                 .build();
     }
 
-    @Transactional
     @Override
-    public ApiResponse transferMoneyBetweenCards(String from, String to, BigDecimal amount) {
+    public ApiResponse transferMoneyBetweenCards(String from, String to, BigDecimal amount, String idempotencyKey) {
         if (this.checkAmount(amount)) {
             return ApiResponse.builder()
                     .status(HttpStatus.BAD_REQUEST)
                     .message("Card cannot be negative or zero")
                     .build();
         }
-        String encryptFrom = this.encryptionService.encrypt(from);
-        String encryptTo = this.encryptionService.encrypt(to);
+        Money money = CardChecks.toMoney(amount);
+        if (money == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message(CardChecks.INVALID_AMOUNT)
+                    .build();
+        }
+        byte[] hashFrom = this.encryptionService.blindIndex(from);
+        byte[] hashTo = this.encryptionService.blindIndex(to);
+
+        Supplier<String> fingerprint = () ->
+                HEX.formatHex(hashFrom) + ">" + HEX.formatHex(hashTo) + "|" + amount.stripTrailingZeros().toPlainString();
+
+        if (this.transferNetting.isEnabled()) {
+            if (Arrays.equals(hashFrom, hashTo)) {
+                throw new IllegalArgumentException("Cannot transfer to the same card");
+            }
+            //netting mode: the transfer is applied with the others of its tick and answered after their commit
+            CardDto.TransferDto transfer = new CardDto.TransferDto();
+            transfer.setCardFrom(from);
+            transfer.setCardTo(to);
+            transfer.setAmount(amount);
+            return this.runIdempotent(idempotencyKey, "transfer-money", fingerprint, finish ->
+                    this.transferNetting.submit(transfer, hashFrom, hashTo, finish, this::applyNettedTransfers));
+        }
+        if (!this.transferExecutor.isEnabled()) {
+            //every attempt runs in its own transaction, lock and version conflicts are retried
+            return this.runIdempotent(idempotencyKey, "transfer-money", fingerprint, null,
+                    () -> this.applyTransfer(hashFrom, hashTo, from, to, money));
+        }
+        //single-writer mode: the two card ids pick the shard (or pair of shards) that applies the transfer;
+        //they only route, the work resolves the cards again so a retry sees the current shard count
+        long[] cardIds = {
+                this.findCardId(hashFrom, "Card not found with ID: " + from),
+                this.findCardId(hashTo, "Card not found with ID: " + to)};
+        return this.runIdempotent(idempotencyKey, "transfer-money", fingerprint, cardIds,
+                () -> this.applyTransfer(hashFrom, hashTo, from, to, money));
+    }
 
-        Card cardFrom = this.cardRepository.findByEncryptedNumber(encryptFrom)
-                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + from));
+    private Long findCardId(byte[] numberHash, String notFoundMessage) {
+        return this.cardRepository.findIdByNumberHash(numberHash)
+                .orElseThrow(() -> new CardNotFoundException(notFoundMessage));
+    }
 
-        Card cardTo = this.cardRepository.findByEncryptedNumber(encryptTo)
-                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + to));
+    private CardRepository.CreditTarget findCreditTarget(byte[] numberHash, String cardNumber) {
+        return this.cardRepository.findCreditTargetByNumberHash(numberHash)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + cardNumber));
+    }
 
-        //to check if the cards are not expired or blocked!
-        this.validateCardForTransaction(cardFrom);
-        this.validateCardForTransaction(cardTo);
+    private ApiResponse applyTransfer(byte[] hashFrom, byte[] hashTo, String from, String to, Money amount) {
+        Long fromId = this.findCardId(hashFrom, "Card not found with ID: " + from);
+        CardRepository.CreditTarget target = this.findCreditTarget(hashTo, to);
+        return this.applyTransfer(fromId, target, amount);
+    }
 
+    private ApiResponse applyTransfer(Long fromId, CardRepository.CreditTarget target, Money amount) {
+        Long toId = target.getId();
 
         // Check if transferring to same card
-        if (cardFrom.getId().equals(cardTo.getId())) {
+        if (fromId.equals(toId)) {
             throw new IllegalArgumentException("Cannot transfer to the same card");
         }
+        if (target.getBalanceShards() > 0) {
+            return this.applyShardedTransfer(fromId, toId, amount);
+        }
 
+        //rows are always locked in ascending id order, so A->B and B->A cannot deadlock
+        Card first = this.lockCard(Math.min(fromId, toId));
+        Card second = this.lockCard(Math.max(fromId, toId));
+        Card cardFrom = fromId < toId ? first : second;
+        Card cardTo = fromId < toId ? second : first;
 
+        //to check if the cards are not expired or blocked!
+        CardChecks.validateForTransaction(cardFrom);
+        CardChecks.validateForTransaction(cardTo);
 
-        if (cardFrom.getBalance().compareTo(amount) < 0) {
+        if (!this.ensureFunds(cardFrom, amount)) {
             return ApiResponse.builder()
                     .status(HttpStatus.BAD_REQUEST)
                     .message("Money is not enough to transfer!")
                     .build();
         }
-        cardFrom.setBalance(cardFrom.getBalance().subtract(amount));
-        cardTo.setBalance(cardTo.getBalance().add(amount));
+        cardFrom.setBalance(cardFrom.getBalance().minus(amount));
+        cardTo.setBalance(cardTo.getBalance().plus(amount));
         this.cardRepository.saveAll(List.of(cardFrom, cardTo));
+        //debit and credit legs go out as one JDBC batch
+        this.transactionRepository.saveAll(LedgerEntries.transfer(cardFrom, cardTo, amount));
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message("Money has successfully transferred!")
+                .build();
+    }
+
+    //only the sender row is locked; the receiver is read as is and credited on one of its balance shards
+    private ApiResponse applyShardedTransfer(Long fromId, Long toId, Money amount) {
+        Card cardFrom = this.lockCard(fromId);
+        Card cardTo = this.cardRepository.findById(toId)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + toId));
 
-        Transaction transaction = new Transaction();
-        transaction.setAmount(amount);
-        transaction.setTransactionType(TransactionType.TRANSFER);
-        transaction.setDescription("Transfer to card: " + cardTo.getLastFourDigits());
-        transaction.setCard(cardFrom);
-        this.transactionRepository.save(transaction);
+        CardChecks.validateForTransaction(cardFrom);
+        CardChecks.validateForTransaction(cardTo);
+
+        if (!this.ensureFunds(cardFrom, amount)) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Money is not enough to transfer!")
+                    .build();
+        }
+        cardFrom.setBalance(cardFrom.getBalance().minus(amount));
+        this.cardRepository.save(cardFrom);
+        this.cardBalanceShards.credit(cardTo, amount);
+        this.transactionRepository.saveAll(LedgerEntries.transfer(cardFrom, cardTo, amount));
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message("Money has successfully transferred!")
                 .build();
     }
 
+    //a sharded sender pulls its shards into the card row only when the row alone is short;
+    //funds reserved by open holds cannot be spent
+    private boolean ensureFunds(Card card, Money amount) {
+        Money required = amount.plus(card.getHeldAmount());
+        if (card.getBalanceShards() == 0) {
+            return !card.getBalance().isLessThan(required);
+        }
+        return this.cardBalanceShards.ensureFunds(card, required);
+    }
+
+    @Override
+    public ApiResponse transferMoneyBatch(List<CardDto.TransferDto> transfers, String idempotencyKey) {
+        if (transfers == null || transfers.isEmpty() || transfers.size() > RestConstants.MAX_BATCH_TRANSFERS) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Batch must contain from 1 to " + RestConstants.MAX_BATCH_TRANSFERS + " transfers")
+                    .build();
+        }
+        //blind indexes are computed once per distinct number, outside the transaction
+        Map<String, ByteBuffer> hashes = new HashMap<>();
+        for (CardDto.TransferDto transfer : transfers) {
+            if (transfer != null && transfer.getCardFrom() != null && transfer.getCardTo() != null) {
+                hashes.computeIfAbsent(transfer.getCardFrom(), n -> ByteBuffer.wrap(this.encryptionService.blindIndex(n)));
+                hashes.computeIfAbsent(transfer.getCardTo(), n -> ByteBuffer.wrap(this.encryptionService.blindIndex(n)));
+            }
+        }
+        return this.runIdempotent(idempotencyKey, "transfer-money-batch",
+                () -> this.batchFingerprint(transfers, hashes),
+                null,
+                () -> this.batchResponse(this.applyTransfers(transfers, hashes)));
+    }
+
+    /**
+     * Applies transfers like one batch request, inside the caller's transaction: numbers are only keys
+     * into {@code hashes}. Used by the batch endpoint and by standing orders.
+     */
+    public List<CardDto.TransferResultDto> applyTransfers(List<CardDto.TransferDto> transfers,
+                                                          Map<String, ByteBuffer> hashes) {
+        List<Transaction> transactions = new ArrayList<>();
+        List<CardDto.TransferResultDto> results =
+                this.applyTransferBatch(transfers, hashes, (i, legs) -> transactions.addAll(legs));
+        //transaction inserts go out as one JDBC batch
+        this.transactionRepository.saveAll(transactions);
+        return results;
+    }
+
+    //one response per netted transfer, shaped like the single transfer answer
+    private List<ApiResponse> applyNettedTransfers(List<CardDto.TransferDto> transfers, Map<String, ByteBuffer> hashes,
+                                                   IntConsumer enter) {
+        //each pair of legs is persisted under its caller's authentication; the inserts still share the flush
+        List<CardDto.TransferResultDto> results = this.applyTransferBatch(transfers, hashes, (i, legs) -> {
+            enter.accept(i);
+            this.transactionRepository.saveAll(legs);
+        });
+        List<ApiResponse> responses = new ArrayList<>(results.size());
+        for (CardDto.TransferResultDto result : results) {
+            responses.add(ApiResponse.builder()
+                    .status(result.getStatus())
+                    .message(result.getMessage())
+                    .build());
+        }
+        return responses;
+    }
+
+    private ApiResponse batchResponse(List<CardDto.TransferResultDto> results) {
+        long succeeded = results.stream().filter(r -> r.getStatus() == HttpStatus.OK).count();
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(succeeded + " of " + results.size() + " transfers completed")
+                .data(results)
+                .build();
+    }
+
+    //items are applied in request order, a failed item is reported and skipped, the rest still commit;
+    //every card row is written once at the flush however many items touched it, ledger legs go to the sink
+    private List<CardDto.TransferResultDto> applyTransferBatch(List<CardDto.TransferDto> transfers,
+                                                               Map<String, ByteBuffer> hashes,
+                                                               BiConsumer<Integer, List<Transaction>> ledger) {
+        List<byte[]> numberHashes = hashes.values().stream().map(ByteBuffer::array).toList();
+        Map<ByteBuffer, Card> cards = new HashMap<>();
+        for (Card card : this.cardRepository.findAllByNumberHashInForUpdate(numberHashes)) {
+            cards.put(ByteBuffer.wrap(card.getNumberHash()), card);
+        }
+
+        List<CardDto.TransferResultDto> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            CardDto.TransferDto transfer = transfers.get(i);
+            if (transfer == null) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, "Transfer is required"));
+                continue;
+            }
+            if (transfer.getAmount() == null || this.checkAmount(transfer.getAmount())) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, "Card cannot be negative or zero"));
+                continue;
+            }
+            Money amount = CardChecks.toMoney(transfer.getAmount());
+            if (amount == null) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, CardChecks.INVALID_AMOUNT));
+                continue;
+            }
+            Card cardFrom = cards.get(hashes.get(transfer.getCardFrom()));
+            Card cardTo = cards.get(hashes.get(transfer.getCardTo()));
+            if (cardFrom == null || cardTo == null) {
+                results.add(this.transferResult(i, HttpStatus.NOT_FOUND, "Card not found"));
+                continue;
+            }
+            if (cardFrom == cardTo) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, "Cannot transfer to the same card"));
+                continue;
+            }
+            try {
+                CardChecks.validateForTransaction(cardFrom);
+                CardChecks.validateForTransaction(cardTo);
+            } catch (CardExpiredException | CardBlockedException e) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, e.getMessage()));
+                continue;
+            }
+            //every card of the batch is locked already: sharded receivers are credited on the card row
+            if (!this.ensureFunds(cardFrom, amount)) {
+                results.add(this.transferResult(i, HttpStatus.BAD_REQUEST, "Money is not enough to transfer!"));
+                continue;
+            }
+            cardFrom.setBalance(cardFrom.getBalance().minus(amount));
+            cardTo.setBalance(cardTo.getBalance().plus(amount));
+            ledger.accept(i, LedgerEntries.transfer(cardFrom, cardTo, amount));
+            results.add(this.transferResult(i, HttpStatus.OK, "Money has successfully transferred!"));
+        }
+        //one flush: card updates go out as a JDBC batch
+        this.cardRepository.saveAll(cards.values());
+        return results;
+    }
+
+    private String batchFingerprint(List<CardDto.TransferDto> transfers, Map<String, ByteBuffer> hashes) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (CardDto.TransferDto transfer : transfers) {
+            if (transfer == null) {
+                fingerprint.append("null;");
+                continue;
+            }
+            ByteBuffer from = hashes.get(transfer.getCardFrom());
+            ByteBuffer to = hashes.get(transfer.getCardTo());
+            fingerprint.append(from == null ? "-" : HEX.formatHex(from.array()))
+                    .append('>')
+                    .append(to == null ? "-" : HEX.formatHex(to.array()))
+                    .append('|')
+                    .append(transfer.getAmount() == null ? "-" : transfer.getAmount().stripTrailingZeros().toPlainString())
+                    .append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    //money moves at most once per Idempotency-Key, the key row commits together with the balance change
+    private ApiResponse runIdempotent(String idempotencyKey, String operation, Supplier<String> fingerprint,
+                                      long[] cardIds, Supplier<ApiResponse> apply) {
+        return this.runIdempotent(idempotencyKey, operation, fingerprint, finish ->
+                this.runInTransaction(cardIds, () -> finish.apply(apply.get())));
+    }
+
+    //run is handed the step that finishes the response inside the transaction that applied it
+    private ApiResponse runIdempotent(String idempotencyKey, String operation, Supplier<String> fingerprint,
+                                      Function<UnaryOperator<ApiResponse>, ApiResponse> run) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return run.apply(UnaryOperator.identity());
+        }
+        return this.idempotencyService.execute(idempotencyKey, operation, fingerprint.get(), scopedKey ->
+                run.apply(response -> this.idempotencyService.store(scopedKey, response)));
+    }
+
+    //with card ids the work goes to the single-writer shards owning them, otherwise to a retried transaction
+    private ApiResponse runInTransaction(long[] cardIds, Supplier<ApiResponse> work) {
+        if (cardIds == null) {
+            return this.transactionRetryTemplate.execute(work);
+        }
+        return this.transferExecutor.execute(cardIds, work);
+    }
+
+    private CardDto.TransferResultDto transferResult(int index, HttpStatus status, String message) {
+        return CardDto.TransferResultDto.builder()
+                .index(index)
+                .status(status)
+                .message(message)
+                .build();
+    }
+
+    private Card lockCard(Long id) {
+        return this.cardRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + id));
+    }
+
     @Override
     public ApiResponse changeCardStatus(Long id, CardStatus cardStatus) {
         Card card = this.cardRepository.findById(id)
@@ -260,16 +594,37 @@ public class CardServiceImpl implements CardService {
                 .build();
     }
 
+    @Override
+    public ApiResponse setBalanceShards(Long id, int shards) {
+        if (shards < 0 || shards > RestConstants.MAX_BALANCE_SHARDS) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Balance shards must be from 0 to " + RestConstants.MAX_BALANCE_SHARDS)
+                    .build();
+        }
+        return this.transactionRetryTemplate.execute(() -> {
+            Card card = this.lockCard(id);
+            this.cardBalanceShards.reshard(card, shards);
+            this.cardRepository.save(card);
+            return ApiResponse.builder()
+                    .status(HttpStatus.OK)
+                    .message(shards == 0 ? "Card balance is no longer sharded" : "Card balance is split over " + shards + " shards")
+                    .build();
+        });
+    }
+
     @Override
     public ApiResponse getAllCards(CardFilter filter, Pageable pageable) {
-        Page<Card> cardPage = this.cardRepository.findAll(filter, pageable);
+        Page<CardRepository.CardRow> cardPage = this.searchesIndex(filter) && ID_DESC.equals(pageable.getSort())
+                ? this.searchIndexPage(filter, pageable)
+                : this.cardRepository.findRows(filter, pageable);
         if (cardPage.isEmpty()) {
             return ApiResponse.builder()
                     .status(HttpStatus.OK)
                     .data(new ArrayList<>())
                     .build();
         }
-        List<CardDto> dtoList = this.cardMapper.toDto(cardPage.getContent());
+        List<CardDto> dtoList = this.cardMapper.toRowDto(cardPage.getContent());
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message(RestConstants.SUCCESS)
@@ -280,47 +635,142 @@ public class CardServiceImpl implements CardService {
     }
 
     @Override
-    public ApiResponse getBalance(Long id) {
-        Card card = this.cardRepository.findById(id)
-                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + id));
+    public ApiResponse getAllCards(CardFilter filter, String cursor, int size, boolean withTotal) {
+        if (size <= 0 || size > MAX_PAGE_SIZE) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Page size must be between 1 and " + MAX_PAGE_SIZE)
+                    .build();
+        }
+        Long afterId;
+        try {
+            afterId = this.decodeCursor(cursor);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Invalid cursor")
+                    .build();
+        }
+        long[] matches = null;
+        List<CardRepository.CardRow> cards;
+        if (this.searchesIndex(filter)) {
+            matches = this.cardSearchIndex.search(filter.getKeyword(), filter.getStatus(), filter.getDeleted());
+            int from = afterId == null ? 0 : this.seek(matches, afterId);
+            cards = this.loadInOrder(matches, from, Math.min(from + size + 1, matches.length));
+        } else {
+            //seek past the last id of the previous page instead of skipping rows: every page costs the same
+            Specification<Card> page = afterId == null
+                    ? filter
+                    : filter.and((root, query, cb) -> cb.lessThan(root.get("id"), afterId));
+            cards = this.cardRepository.findRows(page, ID_DESC, size + 1);
+        }
+        boolean hasNext = cards.size() > size;
+        if (hasNext) {
+            cards = cards.subList(0, size);
+        }
+        //the count walks every matching row, so it is only run on request
+        Long total = null;
+        if (withTotal) {
+            total = matches != null ? matches.length : this.cardRepository.count(filter);
+        }
         return ApiResponse.builder()
                 .status(HttpStatus.OK)
                 .message(RestConstants.SUCCESS)
-                .data(card.getBalance())
+                .data(cards.isEmpty() ? new ArrayList<>() : this.cardMapper.toRowDto(cards))
+                .nextCursor(hasNext ? this.encodeCursor(cards.get(cards.size() - 1).id()) : null)
+                .elements(total)
+                .pages(total == null ? null : (int) ((total + size - 1) / size))
                 .build();
     }
 
-    //every night to check if the card is not expired!
-    @Scheduled(cron = "0 0 0 * * *")
-    @Transactional
-    public void checkCard() {
-        LocalDate today = LocalDate.now();
-        List<Card> cardList = this.cardRepository.findAllByExpiryDateBeforeAndStatusNot(today, CardStatus.EXPIRED);
-        if (cardList.isEmpty()) return;
-        for (Card card : cardList) {
-            card.setStatus(CardStatus.EXPIRED);
-            this.cardRepository.save(card);
-        }
+    //keyword searches are answered by the in-memory index when it is on, it holds every column CardFilter tests
+    private boolean searchesIndex(CardFilter filter) {
+        return this.cardSearchIndex.isReady()
+                && filter.getDeleted() != null
+                && filter.getKeyword() != null
+                && !filter.getKeyword().isBlank();
+    }
 
+    private Page<CardRepository.CardRow> searchIndexPage(CardFilter filter, Pageable pageable) {
+        long[] matches = this.cardSearchIndex.search(filter.getKeyword(), filter.getStatus(), filter.getDeleted());
+        int from = (int) Math.min(pageable.getOffset(), matches.length);
+        int to = Math.min(from + pageable.getPageSize(), matches.length);
+        return new PageImpl<>(this.loadInOrder(matches, from, to), pageable, matches.length);
     }
 
-    //check if the amount is negative
-    private boolean checkAmount(BigDecimal amount) {
-        return amount.compareTo(BigDecimal.ZERO) <= 0;
+    //first position in ids (newest first) holding an id below afterId
+    private int seek(long[] ids, long afterId) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid] >= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
-    public void validateCardForTransaction(Card card) {
-        if (card.getStatus() == CardStatus.EXPIRED) {
-            throw new CardExpiredException("Card is expired");
+    //only the returned page is read from the database, in the order the index gave
+    private List<CardRepository.CardRow> loadInOrder(long[] ids, int from, int to) {
+        List<Long> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(ids[i]);
         }
-        if (card.getStatus() == CardStatus.BLOCKED) {
-            throw new CardBlockedException("Card is blocked");
+        if (page.isEmpty()) {
+            return new ArrayList<>();
         }
-        if (card.getExpiryDate().isBefore(LocalDate.now())) {
-            card.setStatus(CardStatus.EXPIRED);
-            cardRepository.save(card);
-            throw new CardExpiredException("Card expired on " + card.getExpiryDate());
+        Map<Long, CardRepository.CardRow> byId = new HashMap<>();
+        for (CardRepository.CardRow row : this.cardRepository.findRows(
+                (root, query, cb) -> root.get("id").in(page), Sort.unsorted())) {
+            byId.put(row.id(), row);
         }
+        List<CardRepository.CardRow> cards = new ArrayList<>(page.size());
+        for (Long id : page) {
+            CardRepository.CardRow row = byId.get(id);
+            if (row != null) {
+                cards.add(row);
+            }
+        }
+        return cards;
+    }
+
+    //the cursor is opaque to clients: the last id of the page, base64url-encoded
+    private String encodeCursor(long id) {
+        return CURSOR_ENCODER.encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    //null for the first page; IllegalArgumentException when the cursor was not issued by encodeCursor
+    private Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        return Long.parseLong(new String(CURSOR_DECODER.decode(cursor.trim()), StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public ApiResponse getBalance(Long id) {
+        Card card = this.cardRepository.findById(id)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + id));
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(card.getTotalBalance().toBigDecimal())
+                .build();
+    }
+
+    @Override
+    public ApiResponse getBalanceAt(Long id, LocalDateTime at) {
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.cardBalanceHistory.balanceAt(id, at))
+                .build();
+    }
+
+    //check if the amount is negative
+    private boolean checkAmount(BigDecimal amount) {
+        return amount.signum() <= 0;
     }
 
 }
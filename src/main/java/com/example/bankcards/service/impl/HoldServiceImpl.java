@@ -0,0 +1,354 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.HoldDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.enums.HoldStatus;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.CardHoldRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.HoldService;
+import com.example.bankcards.util.CardChecks;
+import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.LedgerEntries;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.RestConstants;
+import com.example.bankcards.util.TimerWheel;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import com.example.bankcards.util.UserSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two-phase card payments. Authorize reserves the amount on the paying card (its heldAmount grows,
+ * the ledger balance stays), capture moves up to the reserved amount to the target card and
+ * release gives it back. Holds left open expire after {@code bank.hold.ttl-seconds}.
+ * <p>
+ * Expiry is driven by an in-memory timer wheel instead of a table scan: every hold is scheduled
+ * when it is authorized, cancelled when it is captured or released, and the open holds are loaded
+ * back into the wheel when the application starts. A hold authorized by another instance is
+ * expired by that instance, or by whichever instance starts next.
+ * <p>
+ * Lock order is the card rows (ascending id) first, then the hold row.
+ */
+@Slf4j
+@Service
+public class HoldServiceImpl implements HoldService {
+
+
+    private final CardRepository cardRepository;
+    private final CardHoldRepository cardHoldRepository;
+    private final TransactionRepository transactionRepository;
+    private final EncryptionService encryptionService;
+    private final CardBalanceShards cardBalanceShards;
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final UserSession userSession;
+    private final long ttlSeconds;
+    //guarded by itself, together with the handles below
+    private final TimerWheel<Long> expiryWheel;
+    private final Map<Long, TimerWheel.Timeout<Long>> expiries = new HashMap<>();
+
+    public HoldServiceImpl(CardRepository cardRepository,
+                           CardHoldRepository cardHoldRepository,
+                           TransactionRepository transactionRepository,
+                           EncryptionService encryptionService,
+                           CardBalanceShards cardBalanceShards,
+                           TransactionRetryTemplate transactionRetryTemplate,
+                           UserSession userSession,
+                           @Value("${bank.hold.ttl-seconds:604800}") long ttlSeconds,
+                           @Value("${bank.hold.expiry.tick-ms:1000}") long tickMs) {
+        this.cardRepository = cardRepository;
+        this.cardHoldRepository = cardHoldRepository;
+        this.transactionRepository = transactionRepository;
+        this.encryptionService = encryptionService;
+        this.cardBalanceShards = cardBalanceShards;
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.userSession = userSession;
+        this.ttlSeconds = ttlSeconds;
+        this.expiryWheel = new TimerWheel<>(tickMs, System.currentTimeMillis());
+    }
+
+    @Override
+    public ApiResponse authorize(String cardFrom, String cardTo, BigDecimal amount) {
+        if (amount == null || amount.signum() <= 0) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Card cannot be negative or zero")
+                    .build();
+        }
+        Money money = CardChecks.toMoney(amount);
+        if (money == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message(CardChecks.INVALID_AMOUNT)
+                    .build();
+        }
+        byte[] hashFrom = this.encryptionService.blindIndex(cardFrom);
+        byte[] hashTo = this.encryptionService.blindIndex(cardTo);
+        ApiResponse response = this.transactionRetryTemplate.execute(() -> this.applyAuthorize(hashFrom, hashTo, money));
+        //scheduled only once the hold is committed
+        if (response.getData() instanceof HoldDto hold) {
+            this.scheduleExpiry(hold.getId(), hold.getExpiresAt());
+        }
+        return response;
+    }
+
+    private ApiResponse applyAuthorize(byte[] hashFrom, byte[] hashTo, Money amount) {
+        Long fromId = this.cardRepository.findIdByNumberHash(hashFrom)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        Long toId = this.cardRepository.findIdByNumberHash(hashTo)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same card");
+        }
+        //only the paying card changes; the target is locked at capture
+        Card card = this.lockCard(fromId);
+        CardChecks.validateForTransaction(card);
+        if (!this.cardBalanceShards.ensureFunds(card, amount.plus(card.getHeldAmount()))) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Money is not enough to transfer!")
+                    .build();
+        }
+        card.setHeldAmount(card.getHeldAmount().plus(amount));
+        this.cardRepository.save(card);
+        CardHold hold = this.cardHoldRepository.save(CardHold.builder()
+                .cardId(fromId)
+                .targetCardId(toId)
+                .amount(amount)
+                .status(HoldStatus.AUTHORIZED)
+                .expiresAt(LocalDateTime.now().plusSeconds(this.ttlSeconds))
+                .build());
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message("Funds are held")
+                .data(this.toDto(hold))
+                .build();
+    }
+
+    @Override
+    public ApiResponse capture(Long holdId, BigDecimal amount) {
+        Money money = null;
+        if (amount != null) {
+            if (amount.signum() <= 0) {
+                return ApiResponse.builder()
+                        .status(HttpStatus.BAD_REQUEST)
+                        .message("Card cannot be negative or zero")
+                        .build();
+            }
+            money = CardChecks.toMoney(amount);
+            if (money == null) {
+                return ApiResponse.builder()
+                        .status(HttpStatus.BAD_REQUEST)
+                        .message(CardChecks.INVALID_AMOUNT)
+                        .build();
+            }
+        }
+        if (!this.isOwnHold(holdId)) {
+            return this.holdNotFound(holdId);
+        }
+        Money requested = money;
+        ApiResponse response = this.transactionRetryTemplate.execute(() -> this.applyCapture(holdId, requested));
+        this.cancelExpiry(response, holdId);
+        return response;
+    }
+
+    private ApiResponse applyCapture(Long holdId, Money requested) {
+        CardHoldRepository.Parties parties = this.cardHoldRepository.findPartiesById(holdId).orElse(null);
+        if (parties == null) {
+            return this.holdNotFound(holdId);
+        }
+        //card ids of a hold never change, so the rows can be locked in order before the hold itself
+        Long fromId = parties.getCardId();
+        Long toId = parties.getTargetCardId();
+        Card first = this.lockCard(Math.min(fromId, toId));
+        Card second = this.lockCard(Math.max(fromId, toId));
+        Card cardFrom = fromId < toId ? first : second;
+        Card cardTo = fromId < toId ? second : first;
+        CardHold hold = this.lockHold(holdId);
+        if (hold.getStatus() != HoldStatus.AUTHORIZED) {
+            return this.holdClosed(hold);
+        }
+        Money captured = requested == null ? hold.getAmount() : requested;
+        if (hold.getAmount().isLessThan(captured)) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Capture exceeds the held amount of " + hold.getAmount())
+                    .build();
+        }
+        CardChecks.validateForTransaction(cardFrom);
+        CardChecks.validateForTransaction(cardTo);
+
+        //the whole reservation ends here, an uncaptured remainder is available again
+        cardFrom.setHeldAmount(cardFrom.getHeldAmount().minus(hold.getAmount()));
+        if (!this.cardBalanceShards.ensureFunds(cardFrom, captured.plus(cardFrom.getHeldAmount()))) {
+            throw new IllegalStateException("Held funds of card " + cardFrom.getId() + " are missing");
+        }
+        cardFrom.setBalance(cardFrom.getBalance().minus(captured));
+        cardTo.setBalance(cardTo.getBalance().plus(captured));
+        this.cardRepository.saveAll(List.of(cardFrom, cardTo));
+        this.transactionRepository.saveAll(LedgerEntries.transfer(cardFrom, cardTo, captured));
+        hold.setCapturedAmount(captured);
+        hold.setStatus(HoldStatus.CAPTURED);
+        this.cardHoldRepository.save(hold);
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message("Money has successfully transferred!")
+                .data(this.toDto(hold))
+                .build();
+    }
+
+    @Override
+    public ApiResponse release(Long holdId) {
+        if (!this.isOwnHold(holdId)) {
+            return this.holdNotFound(holdId);
+        }
+        ApiResponse response = this.transactionRetryTemplate.execute(() -> this.applyRelease(holdId, HoldStatus.RELEASED));
+        this.cancelExpiry(response, holdId);
+        return response;
+    }
+
+    //RELEASED on request, EXPIRED from the wheel; a hold that is no longer open is left as it is
+    private ApiResponse applyRelease(Long holdId, HoldStatus outcome) {
+        CardHoldRepository.Parties parties = this.cardHoldRepository.findPartiesById(holdId).orElse(null);
+        if (parties == null) {
+            return this.holdNotFound(holdId);
+        }
+        Card card = this.lockCard(parties.getCardId());
+        CardHold hold = this.lockHold(holdId);
+        if (hold.getStatus() != HoldStatus.AUTHORIZED) {
+            return this.holdClosed(hold);
+        }
+        card.setHeldAmount(card.getHeldAmount().minus(hold.getAmount()));
+        this.cardRepository.save(card);
+        hold.setStatus(outcome);
+        this.cardHoldRepository.save(hold);
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.toDto(hold))
+                .build();
+    }
+
+    @Override
+    public ApiResponse getHold(Long holdId) {
+        return this.cardHoldRepository.findById(holdId)
+                .filter(hold -> this.isOwnCard(hold.getCardId()))
+                .map(hold -> ApiResponse.builder()
+                        .status(HttpStatus.OK)
+                        .message(RestConstants.SUCCESS)
+                        .data(this.toDto(hold))
+                        .build())
+                .orElseGet(() -> this.holdNotFound(holdId));
+    }
+
+    //the wheel only lives in memory: after a restart it is filled from the open holds
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenHolds() {
+        List<CardHoldRepository.Deadline> open = this.cardHoldRepository.findDeadlinesByStatus(HoldStatus.AUTHORIZED);
+        for (CardHoldRepository.Deadline deadline : open) {
+            this.scheduleExpiry(deadline.getId(), deadline.getExpiresAt());
+        }
+        log.info("Scheduled expiry of {} open holds", open.size());
+    }
+
+    //each tick only touches the holds that came due, nothing else is read
+    @Scheduled(fixedDelayString = "${bank.hold.expiry.tick-ms:1000}")
+    public void expireDueHolds() {
+        List<Long> due;
+        synchronized (this.expiryWheel) {
+            due = this.expiryWheel.advance(System.currentTimeMillis());
+            due.forEach(this.expiries::remove);
+        }
+        for (Long holdId : due) {
+            try {
+                this.transactionRetryTemplate.execute(() -> this.applyRelease(holdId, HoldStatus.EXPIRED));
+            } catch (RuntimeException e) {
+                log.warn("Could not expire hold {}: {}", holdId, e.getMessage());
+            }
+        }
+    }
+
+    private void scheduleExpiry(Long holdId, LocalDateTime expiresAt) {
+        long deadline = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        synchronized (this.expiryWheel) {
+            if (!this.expiries.containsKey(holdId)) {
+                this.expiries.put(holdId, this.expiryWheel.schedule(holdId, deadline));
+            }
+        }
+    }
+
+    //a capture or release that found the hold already closed leaves the wheel alone as well
+    private void cancelExpiry(ApiResponse response, Long holdId) {
+        if (response.getStatus() != HttpStatus.OK) return;
+        synchronized (this.expiryWheel) {
+            TimerWheel.Timeout<Long> timeout = this.expiries.remove(holdId);
+            if (timeout != null) this.expiryWheel.cancel(timeout);
+        }
+    }
+
+    private Card lockCard(Long id) {
+        return this.cardRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + id));
+    }
+
+    //the paying card of a hold never changes, so ownership is checked once before the locking transaction
+    private boolean isOwnHold(Long holdId) {
+        return this.cardHoldRepository.findPartiesById(holdId)
+                .map(parties -> this.isOwnCard(parties.getCardId()))
+                .orElse(false);
+    }
+
+    //someone else's hold is reported as missing, unless the caller is an admin
+    private boolean isOwnCard(Long cardId) {
+        return this.userSession.isAdmin() || this.cardRepository.existsByIdAndOwnerId(cardId, this.userSession.getUser());
+    }
+
+    private CardHold lockHold(Long id) {
+        return this.cardHoldRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new IllegalStateException("Hold " + id + " disappeared"));
+    }
+
+    private ApiResponse holdNotFound(Long holdId) {
+        return ApiResponse.builder()
+                .status(HttpStatus.NOT_FOUND)
+                .message("Hold not found with ID: " + holdId)
+                .build();
+    }
+
+    private ApiResponse holdClosed(CardHold hold) {
+        return ApiResponse.builder()
+                .status(HttpStatus.CONFLICT)
+                .message("Hold is already " + hold.getStatus())
+                .data(this.toDto(hold))
+                .build();
+    }
+
+    private HoldDto toDto(CardHold hold) {
+        return HoldDto.builder()
+                .id(hold.getId())
+                .cardId(hold.getCardId())
+                .targetCardId(hold.getTargetCardId())
+                .amount(hold.getAmount().toBigDecimal())
+                .capturedAmount(hold.getCapturedAmount() == null ? null : hold.getCapturedAmount().toBigDecimal())
+                .status(hold.getStatus())
+                .expiresAt(hold.getExpiresAt())
+                .createdAt(hold.getCreatedAt())
+                .updatedAt(hold.getUpdatedAt())
+                .build();
+    }
+}
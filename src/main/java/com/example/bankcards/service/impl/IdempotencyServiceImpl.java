@@ -0,0 +1,196 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Idempotency-Key handling for the money-moving endpoints.
+ * Answers come from a bounded in-memory tier first, then from the idempotency_keys table,
+ * which the action writes in the same transaction as the balance change.
+ * Duplicates arriving while the first request is still running wait for its outcome.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, StoredResponse> hotTier;
+    private final Duration retention;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository idempotencyRecordRepository,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${bank.idempotency.hot-tier.maximum-size:10000}") long maximumSize,
+                                  @Value("${bank.idempotency.hot-tier.ttl-seconds:600}") long ttlSeconds,
+                                  @Value("${bank.idempotency.retention-hours:24}") long retentionHours) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.retention = Duration.ofHours(retentionHours);
+        //the hot tier never outlives the durable record it mirrors
+        Duration hotTierTtl = Duration.ofSeconds(ttlSeconds);
+        this.hotTier = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(hotTierTtl.compareTo(this.retention) < 0 ? hotTierTtl : this.retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, hotTier, "idempotencyKeys");
+    }
+
+    @Override
+    public ApiResponse execute(String idempotencyKey, String operation, String fingerprint,
+                               Function<String, ApiResponse> action) {
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = operation + ":" + this.currentUsername() + ":" + idempotencyKey;
+        String requestHash = sha256(operation + "|" + fingerprint);
+
+        StoredResponse cached = this.hotTier.getIfPresent(scopedKey);
+        if (cached != null) {
+            return cached.replay(requestHash);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = this.inFlight.putIfAbsent(scopedKey, mine);
+        if (running != null) {
+            return await(running.result()).replay(requestHash);
+        }
+        try {
+            StoredResponse stored = this.load(scopedKey);
+            if (stored == null) {
+                stored = this.run(scopedKey, requestHash, action);
+            }
+            this.hotTier.put(scopedKey, stored);
+            mine.result().complete(stored);
+            return stored.replay(requestHash);
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(scopedKey, mine);
+        }
+    }
+
+    @Override
+    public ApiResponse store(String scopedKey, ApiResponse response) {
+        InFlight running = this.inFlight.get(scopedKey);
+        if (running == null) {
+            throw new IllegalStateException("No request in flight for " + scopedKey);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        //an expired row the purge job has not reached yet is replaced instead of colliding on the key
+        this.idempotencyRecordRepository.deleteExpired(List.of(scopedKey), now);
+        this.idempotencyRecordRepository.save(IdempotencyRecord.builder()
+                .idempotencyKey(scopedKey)
+                .requestHash(running.requestHash())
+                .response(this.serialize(response))
+                .createdAt(now)
+                .expiresAt(now.plus(this.retention))
+                .build());
+        return response;
+    }
+
+    private StoredResponse run(String scopedKey, String requestHash, Function<String, ApiResponse> action) {
+        try {
+            return new StoredResponse(requestHash, action.apply(scopedKey));
+        } catch (DataIntegrityViolationException e) {
+            //another node committed the same key first, its transaction wins and ours rolled back
+            StoredResponse stored = this.load(scopedKey);
+            if (stored == null) throw e;
+            return stored;
+        }
+    }
+
+    private StoredResponse load(String scopedKey) {
+        return this.idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(scopedKey, LocalDateTime.now())
+                .map(record -> new StoredResponse(record.getRequestHash(), this.deserialize(record.getResponse())))
+                .orElse(null);
+    }
+
+    private String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? "anonymous" : authentication.getName();
+    }
+
+    private String serialize(ApiResponse response) {
+        try {
+            return this.objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize response", e);
+        }
+    }
+
+    private ApiResponse deserialize(String json) {
+        try {
+            return this.objectMapper.readValue(json, ApiResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read stored response", e);
+        }
+    }
+
+    private static StoredResponse await(CompletableFuture<StoredResponse> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record InFlight(String requestHash, CompletableFuture<StoredResponse> result) {
+    }
+
+    private record StoredResponse(String requestHash, ApiResponse response) {
+
+        //a key reused with different parameters is refused instead of replaying someone else's answer
+        ApiResponse replay(String requestHash) {
+            if (this.requestHash.equals(requestHash)) {
+                return response;
+            }
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Idempotency-Key was already used for a different request")
+                    .build();
+        }
+    }
+}
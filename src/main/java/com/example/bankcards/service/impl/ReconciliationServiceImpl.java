@@ -0,0 +1,71 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.ReconciliationDto;
+import com.example.bankcards.entity.ReconciliationMismatch;
+import com.example.bankcards.job.LedgerReconciliationJob;
+import com.example.bankcards.repository.ReconciliationMismatchRepository;
+import com.example.bankcards.service.ReconciliationService;
+import com.example.bankcards.util.RestConstants;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+@Service
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    private final LedgerReconciliationJob ledgerReconciliationJob;
+    private final ReconciliationMismatchRepository mismatchRepository;
+
+    public ReconciliationServiceImpl(LedgerReconciliationJob ledgerReconciliationJob,
+                                     ReconciliationMismatchRepository mismatchRepository) {
+        this.ledgerReconciliationJob = ledgerReconciliationJob;
+        this.mismatchRepository = mismatchRepository;
+    }
+
+    @Override
+    public ApiResponse runReconciliation() {
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.ledgerReconciliationJob.reconcile())
+                .build();
+    }
+
+    //without a run id the latest run that found mismatches is shown
+    @Override
+    public ApiResponse getMismatches(UUID runId, Pageable pageable) {
+        UUID effectiveRunId = runId != null ? runId : this.mismatchRepository.findFirstByOrderByIdDesc()
+                .map(ReconciliationMismatch::getRunId)
+                .orElse(null);
+        if (effectiveRunId == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.OK)
+                    .data(new ArrayList<>())
+                    .build();
+        }
+        Page<ReconciliationMismatch> page = this.mismatchRepository.findAllByRunId(effectiveRunId, pageable);
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(page.getContent().stream().map(this::toDto).toList())
+                .pages(page.getTotalPages())
+                .elements(page.getTotalElements())
+                .build();
+    }
+
+    private ReconciliationDto.MismatchDto toDto(ReconciliationMismatch mismatch) {
+        return ReconciliationDto.MismatchDto.builder()
+                .runId(mismatch.getRunId())
+                .cardId(mismatch.getCardId())
+                .cardBalance(mismatch.getCardBalance())
+                .ledgerBalance(mismatch.getLedgerBalance())
+                .difference(mismatch.getDifference())
+                .createdAt(mismatch.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.util.MpscRingBuffer;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Optional single-writer mode for money operations. Every card belongs to one of N shards
+ * (card id modulo N) and each shard is one thread fed by a bounded lock-free ring, so the
+ * operations on a card run one after another in arrival order instead of queueing on row locks.
+ * A shard keeps taking operations while its ring has any and commits them as one transaction.
+ * <p>
+ * A transfer between two shards is run by the lower one: it commits its pending group, queues a
+ * join on the higher shard, waits until that shard has committed its own group and parked, then
+ * applies the transfer in a transaction of its own and releases it. A shard only ever waits for a
+ * higher shard to park, so the protocol cannot deadlock.
+ * <p>
+ * When a group fails, its operations are re-run one by one, each in its own retried transaction,
+ * so a single failing operation cannot take its neighbours down with it.
+ */
+@Slf4j
+@Service
+public class ShardedTransferExecutor {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_RING_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final int groupSize;
+    private final Shard[] shards;
+    private volatile boolean running = true;
+
+    public ShardedTransferExecutor(TransactionRetryTemplate transactionRetryTemplate,
+                                   @Value("${bank.transfer.executor.enabled:false}") boolean enabled,
+                                   @Value("${bank.transfer.executor.shards:4}") int shardCount,
+                                   @Value("${bank.transfer.executor.ring-capacity:1024}") int ringCapacity,
+                                   @Value("${bank.transfer.executor.group-size:64}") int groupSize) {
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.groupSize = Math.max(1, groupSize);
+        this.shards = new Shard[enabled ? Math.max(1, shardCount) : 0];
+        for (int i = 0; i < this.shards.length; i++) {
+            this.shards[i] = new Shard(i, ringCapacity);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Shard shard : this.shards) {
+            shard.thread.start();
+        }
+        if (this.enabled) {
+            log.info("Single-writer transfer executor started with {} shards", this.shards.length);
+        }
+    }
+
+    //operations already queued are still applied
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.running = false;
+        for (Shard shard : this.shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : this.shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public int shardOf(long cardId) {
+        return Math.floorMod(cardId, this.shards.length);
+    }
+
+    //runs the work on the shard owning the cards, inside a transaction, and waits for it to commit
+    public ApiResponse execute(long[] cardIds, Supplier<ApiResponse> work) {
+        int low = Integer.MAX_VALUE;
+        int high = -1;
+        for (long cardId : cardIds) {
+            int shard = this.shardOf(cardId);
+            low = Math.min(low, shard);
+            high = Math.max(high, shard);
+        }
+        Operation operation = new Operation(work, SecurityContextHolder.getContext(), low == high ? null : this.shards[high]);
+        this.shards[low].submit(operation);
+        try {
+            return operation.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private final class Shard implements Runnable {
+        private final int index;
+        private final MpscRingBuffer<Object> ring;
+        private final Thread thread;
+        private final List<Operation> group = new ArrayList<>();
+        private volatile boolean idle;
+
+        private Shard(int index, int ringCapacity) {
+            this.index = index;
+            this.ring = new MpscRingBuffer<>(ringCapacity);
+            this.thread = new Thread(this, "transfer-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        //a full ring pushes back on the caller until the shard catches up
+        private void submit(Object task) {
+            while (!this.ring.offer(task)) {
+                LockSupport.parkNanos(FULL_RING_PARK_NANOS);
+            }
+            if (this.idle) LockSupport.unpark(this.thread);
+        }
+
+        @Override
+        public void run() {
+            while (running || !this.ring.isEmpty()) {
+                Object task = this.ring.poll();
+                if (task == null) {
+                    //nothing more queued right now: whatever was gathered commits as one group
+                    this.commitGroup();
+                    this.idle = true;
+                    if (this.ring.isEmpty() && running) LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    this.idle = false;
+                } else if (task instanceof Join join) {
+                    this.commitGroup();
+                    join.parked.countDown();
+                    awaitUninterruptibly(join.released);
+                } else {
+                    Operation operation = (Operation) task;
+                    if (operation.partner == null) {
+                        this.group.add(operation);
+                        if (this.group.size() >= groupSize) this.commitGroup();
+                    } else {
+                        this.commitGroup();
+                        this.coordinate(operation);
+                    }
+                }
+            }
+            this.commitGroup();
+        }
+
+        private void coordinate(Operation operation) {
+            Join join = new Join(new CountDownLatch(1), new CountDownLatch(1));
+            operation.partner.submit(join);
+            awaitUninterruptibly(join.parked);
+            try {
+                this.runAlone(operation);
+            } finally {
+                join.released.countDown();
+            }
+        }
+
+        private void commitGroup() {
+            if (this.group.isEmpty()) return;
+            List<Operation> operations = List.copyOf(this.group);
+            this.group.clear();
+            ApiResponse[] results;
+            try {
+                results = transactionRetryTemplate.execute(() -> {
+                    ApiResponse[] applied = new ApiResponse[operations.size()];
+                    for (int i = 0; i < applied.length; i++) {
+                        applied[i] = operations.get(i).apply();
+                    }
+                    return applied;
+                });
+            } catch (RuntimeException e) {
+                log.debug("Group of {} on shard {} failed, applying one by one: {}", operations.size(), this.index, e.getMessage());
+                for (Operation operation : operations) {
+                    this.runAlone(operation);
+                }
+                return;
+            }
+            //callers hear back only once the whole group is durable
+            for (int i = 0; i < results.length; i++) {
+                operations.get(i).result.complete(results[i]);
+            }
+        }
+
+        private void runAlone(Operation operation) {
+            try {
+                operation.result.complete(transactionRetryTemplate.execute(operation::apply));
+            } catch (RuntimeException e) {
+                operation.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Operation {
+        private final Supplier<ApiResponse> work;
+        private final SecurityContext securityContext;
+        private final Shard partner;
+        private final CompletableFuture<ApiResponse> result = new CompletableFuture<>();
+
+        private Operation(Supplier<ApiResponse> work, SecurityContext securityContext, Shard partner) {
+            this.work = work;
+            this.securityContext = securityContext;
+            this.partner = partner;
+        }
+
+        //the caller's authentication is what auditing and idempotency scoping see
+        private ApiResponse apply() {
+            SecurityContextHolder.setContext(this.securityContext);
+            try {
+                return this.work.get();
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    private record Join(CountDownLatch parked, CountDownLatch released) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.StandingOrderDto;
+import com.example.bankcards.entity.StandingOrder;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.job.StandingOrderJob;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.StandingOrderRepository;
+import com.example.bankcards.service.StandingOrderService;
+import com.example.bankcards.util.CardChecks;
+import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.RestConstants;
+import com.example.bankcards.util.UserSession;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+public class StandingOrderServiceImpl implements StandingOrderService {
+
+    private final StandingOrderRepository standingOrderRepository;
+    private final CardRepository cardRepository;
+    private final EncryptionService encryptionService;
+    private final StandingOrderJob standingOrderJob;
+    private final UserSession userSession;
+
+    public StandingOrderServiceImpl(StandingOrderRepository standingOrderRepository,
+                                    CardRepository cardRepository,
+                                    EncryptionService encryptionService,
+                                    StandingOrderJob standingOrderJob,
+                                    UserSession userSession) {
+        this.standingOrderRepository = standingOrderRepository;
+        this.cardRepository = cardRepository;
+        this.encryptionService = encryptionService;
+        this.standingOrderJob = standingOrderJob;
+        this.userSession = userSession;
+    }
+
+    //funds are checked on every run, not here
+    @Override
+    public ApiResponse createStandingOrder(StandingOrderDto.CreateStandingOrderDto dto) {
+        if (dto.getCardFrom() == null || dto.getCardTo() == null || dto.getFrequency() == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Card from, card to and frequency are required")
+                    .build();
+        }
+        if (dto.getAmount() == null || dto.getAmount().signum() <= 0) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message("Card cannot be negative or zero")
+                    .build();
+        }
+        Money amount = CardChecks.toMoney(dto.getAmount());
+        if (amount == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.BAD_REQUEST)
+                    .message(CardChecks.INVALID_AMOUNT)
+                    .build();
+        }
+        Long fromId = this.cardRepository.findIdByNumberHash(this.encryptionService.blindIndex(dto.getCardFrom()))
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + dto.getCardFrom()));
+        Long toId = this.cardRepository.findIdByNumberHash(this.encryptionService.blindIndex(dto.getCardTo()))
+                .orElseThrow(() -> new CardNotFoundException("Card not found with ID: " + dto.getCardTo()));
+        if (fromId.equals(toId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same card");
+        }
+        if (!this.cardRepository.existsByIdAndOwnerId(fromId, this.userSession.getUser())) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.FORBIDDEN)
+                    .message("Standing orders can only be created from your own card")
+                    .build();
+        }
+        StandingOrder order = this.standingOrderRepository.save(StandingOrder.builder()
+                .fromCardId(fromId)
+                .toCardId(toId)
+                .amount(amount)
+                .frequency(dto.getFrequency())
+                .status(StandingOrderStatus.ACTIVE)
+                .nextRunAt(dto.getFirstRunAt() != null ? dto.getFirstRunAt() : LocalDateTime.now())
+                .build());
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.toDto(order))
+                .build();
+    }
+
+    //someone else's order is reported as missing, unless the caller is an admin
+    @Override
+    public ApiResponse cancelStandingOrder(Long id) {
+        StandingOrder order = (this.userSession.isAdmin()
+                ? this.standingOrderRepository.findById(id)
+                : this.standingOrderRepository.findByIdAndCreatedBy(id, this.userSession.getUser())).orElse(null);
+        if (order == null) {
+            return ApiResponse.builder()
+                    .status(HttpStatus.NOT_FOUND)
+                    .message("Standing order not found with ID: " + id)
+                    .build();
+        }
+        order.setStatus(StandingOrderStatus.CANCELLED);
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.toDto(this.standingOrderRepository.save(order)))
+                .build();
+    }
+
+    @Override
+    public ApiResponse getMyStandingOrders() {
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.standingOrderRepository.findAllByCreatedByOrderByIdDesc(this.userSession.getUser())
+                        .stream()
+                        .map(this::toDto)
+                        .toList())
+                .build();
+    }
+
+    @Override
+    public ApiResponse runDueOrders() {
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(RestConstants.SUCCESS)
+                .data(this.standingOrderJob.runDue())
+                .build();
+    }
+
+    private StandingOrderDto toDto(StandingOrder order) {
+        return StandingOrderDto.builder()
+                .id(order.getId())
+                .fromCardId(order.getFromCardId())
+                .toCardId(order.getToCardId())
+                .amount(order.getAmount().toBigDecimal())
+                .frequency(order.getFrequency())
+                .status(order.getStatus())
+                .nextRunAt(order.getNextRunAt())
+                .lastRunAt(order.getLastRunAt())
+                .lastStatus(order.getLastStatus())
+                .lastMessage(order.getLastMessage())
+                .createdAt(order.getCreatedAt())
+                .createdBy(order.getCreatedBy())
+                .build();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.bankcards.service.impl;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.util.MpscRingBuffer;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Optional netting stage in front of the balance writer. Single transfers from concurrent callers
+ * are collected for one short tick and applied together: the cards are locked once, every transfer
+ * is checked against the running balance in arrival order, and the flush writes one UPDATE per
+ * touched card plus all ledger legs as JDBC batches. A caller is answered only after that commit.
+ * <p>
+ * If a tick fails as a whole, its transfers are re-applied one by one so a single bad transfer
+ * cannot fail the others.
+ */
+@Slf4j
+@Service
+public class TransferNettingStage {
+
+    private static final long FULL_QUEUE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final TransactionRetryTemplate transactionRetryTemplate;
+    private final boolean enabled;
+    private final long tickNanos;
+    private final int maxBatch;
+    private final MpscRingBuffer<Pending> queue;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile boolean idle;
+
+    public TransferNettingStage(TransactionRetryTemplate transactionRetryTemplate,
+                                @Value("${bank.transfer.netting.enabled:false}") boolean enabled,
+                                @Value("${bank.transfer.netting.tick-ms:2}") long tickMs,
+                                @Value("${bank.transfer.netting.max-batch:500}") int maxBatch,
+                                @Value("${bank.transfer.netting.queue-capacity:4096}") int queueCapacity) {
+        this.transactionRetryTemplate = transactionRetryTemplate;
+        this.enabled = enabled;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, tickMs));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.queue = new MpscRingBuffer<>(enabled ? queueCapacity : 1);
+        this.thread = new Thread(this::run, "transfer-netting");
+        this.thread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (this.enabled) {
+            this.thread.start();
+        }
+    }
+
+    //transfers already queued are still applied
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.running = false;
+        if (this.enabled) {
+            LockSupport.unpark(this.thread);
+            this.thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Queues a transfer for the next tick and waits until it has been committed.
+     * {@code finish} runs inside the same transaction once the transfer has been applied
+     * (the idempotency record is written there).
+     */
+    public ApiResponse submit(CardDto.TransferDto transfer, byte[] hashFrom, byte[] hashTo,
+                              UnaryOperator<ApiResponse> finish, Applier applier) {
+        Pending pending = new Pending(transfer, hashFrom, hashTo, finish, applier,
+                SecurityContextHolder.getContext(), new CompletableFuture<>());
+        while (!this.queue.offer(pending)) {
+            LockSupport.parkNanos(FULL_QUEUE_PARK_NANOS);
+        }
+        if (this.idle) LockSupport.unpark(this.thread);
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void run() {
+        while (this.running || !this.queue.isEmpty()) {
+            Pending first = this.queue.poll();
+            if (first == null) {
+                this.idle = true;
+                if (this.queue.isEmpty() && this.running) LockSupport.parkNanos(IDLE_PARK_NANOS);
+                this.idle = false;
+                continue;
+            }
+            //the tick starts with its first transfer, so a quiet system adds at most one tick of latency
+            List<Pending> tick = new ArrayList<>();
+            tick.add(first);
+            long deadline = System.nanoTime() + this.tickNanos;
+            while (tick.size() < this.maxBatch) {
+                Pending next = this.queue.poll();
+                if (next != null) {
+                    tick.add(next);
+                    continue;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                LockSupport.parkNanos(Math.min(remaining, FULL_QUEUE_PARK_NANOS));
+            }
+            this.commit(tick);
+        }
+    }
+
+    private void commit(List<Pending> tick) {
+        List<CardDto.TransferDto> transfers = new ArrayList<>(tick.size());
+        Map<String, ByteBuffer> hashes = new HashMap<>();
+        for (Pending pending : tick) {
+            transfers.add(pending.transfer());
+            hashes.putIfAbsent(pending.transfer().getCardFrom(), ByteBuffer.wrap(pending.hashFrom()));
+            hashes.putIfAbsent(pending.transfer().getCardTo(), ByteBuffer.wrap(pending.hashTo()));
+        }
+        //each transfer is applied and recorded under its caller's authentication, as auditing expects
+        IntConsumer enter = i -> SecurityContextHolder.setContext(tick.get(i).securityContext());
+        List<ApiResponse> responses;
+        try {
+            responses = this.transactionRetryTemplate.execute(() -> {
+                List<ApiResponse> applied = tick.get(0).applier().apply(transfers, hashes, enter);
+                List<ApiResponse> finished = new ArrayList<>(applied.size());
+                for (int i = 0; i < applied.size(); i++) {
+                    enter.accept(i);
+                    finished.add(tick.get(i).finish().apply(applied.get(i)));
+                }
+                return finished;
+            });
+        } catch (RuntimeException e) {
+            log.debug("Netting tick of {} transfers failed, applying one by one: {}", tick.size(), e.getMessage());
+            for (Pending pending : tick) {
+                this.commitAlone(pending);
+            }
+            return;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        //callers hear back only once the whole tick is durable
+        for (int i = 0; i < responses.size(); i++) {
+            tick.get(i).result().complete(responses.get(i));
+        }
+    }
+
+    private void commitAlone(Pending pending) {
+        Map<String, ByteBuffer> hashes = new HashMap<>();
+        hashes.put(pending.transfer().getCardFrom(), ByteBuffer.wrap(pending.hashFrom()));
+        hashes.putIfAbsent(pending.transfer().getCardTo(), ByteBuffer.wrap(pending.hashTo()));
+        SecurityContextHolder.setContext(pending.securityContext());
+        try {
+            pending.result().complete(this.transactionRetryTemplate.execute(() -> {
+                ApiResponse applied = pending.applier().apply(List.of(pending.transfer()), hashes, i -> { }).get(0);
+                return pending.finish().apply(applied);
+            }));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Applier {
+        //applies the transfers in order within the current transaction, one response per transfer;
+        //enter is called with the index of each transfer before it is applied
+        List<ApiResponse> apply(List<CardDto.TransferDto> transfers, Map<String, ByteBuffer> hashes, IntConsumer enter);
+    }
+
+    private record Pending(CardDto.TransferDto transfer, byte[] hashFrom, byte[] hashTo,
+                           UnaryOperator<ApiResponse> finish, Applier applier,
+                           SecurityContext securityContext, CompletableFuture<ApiResponse> result) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.CardBlockedException;
+import com.example.bankcards.exception.CardExpiredException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Request amount and card state checks shared by the services that move or reserve money.
+ */
+public final class CardChecks {
+
+    public static final String INVALID_AMOUNT = "Amount must have at most " + Money.SCALE + " decimal places";
+
+    private CardChecks() {
+    }
+
+    //request amounts become minor units once, null when they have more than two decimals or overflow
+    public static Money toMoney(BigDecimal amount) {
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    public static void validateForTransaction(Card card) {
+        if (card.getStatus() == CardStatus.EXPIRED) {
+            throw new CardExpiredException("Card is expired");
+        }
+        if (card.getStatus() == CardStatus.BLOCKED) {
+            throw new CardBlockedException("Card is blocked");
+        }
+        //read-only: the status itself is flipped by CardExpiryScheduler close to midnight
+        if (card.getExpiryDate().isBefore(LocalDate.now())) {
+            throw new CardExpiredException("Card expired on " + card.getExpiryDate());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.bankcards.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Byte-level AES engine behind {@link EncryptionService}.
+ * Keys are built once and every thread keeps its own initialized {@link Cipher}
+ * instances, so a call costs one cipher operation and a single output array.
+ * <p>
+ * New values use AES-GCM with a random 12-byte IV, laid out as {@code iv || ciphertext || tag}.
+ * The legacy AES/ECB format is still accepted for decryption.
+ */
+public final class CardCipher {
+
+    public static final int GCM_IV_LENGTH = 12;
+    public static final int GCM_TAG_BITS = 128;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec gcmKey;
+    private final SecretKeySpec legacyKey;
+    private final ThreadLocal<State> state;
+
+    public CardCipher(byte[] gcmKey, byte[] legacyKey) {
+        this.gcmKey = new SecretKeySpec(gcmKey, "AES");
+        this.legacyKey = new SecretKeySpec(legacyKey, "AES");
+        this.state = ThreadLocal.withInitial(this::newState);
+    }
+
+    public byte[] encryptGcm(byte[] plain, int offset, int length) {
+        State s = state.get();
+        try {
+            RANDOM.nextBytes(s.iv);
+            s.gcm.init(Cipher.ENCRYPT_MODE, gcmKey, new GCMParameterSpec(GCM_TAG_BITS, s.iv));
+            byte[] out = new byte[GCM_IV_LENGTH + s.gcm.getOutputSize(length)];
+            System.arraycopy(s.iv, 0, out, 0, GCM_IV_LENGTH);
+            int written = s.gcm.doFinal(plain, offset, length, out, GCM_IV_LENGTH);
+            return written + GCM_IV_LENGTH == out.length ? out : Arrays.copyOf(out, written + GCM_IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Encrypt error", e);
+        }
+    }
+
+    public byte[] decryptGcm(byte[] data, int offset, int length) {
+        if (length < GCM_IV_LENGTH + GCM_TAG_BITS / 8) {
+            throw new IllegalArgumentException("Ciphertext is too short");
+        }
+        State s = state.get();
+        try {
+            s.gcm.init(Cipher.DECRYPT_MODE, gcmKey, new GCMParameterSpec(GCM_TAG_BITS, data, offset, GCM_IV_LENGTH));
+            return s.gcm.doFinal(data, offset + GCM_IV_LENGTH, length - GCM_IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Decrypt error", e);
+        }
+    }
+
+    //the ECB ciphers stay initialized, doFinal resets them for the next call
+    public byte[] encryptLegacy(byte[] plain, int offset, int length) {
+        try {
+            return state.get().legacyEncrypt.doFinal(plain, offset, length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Encrypt error", e);
+        }
+    }
+
+    public byte[] decryptLegacy(byte[] data, int offset, int length) {
+        try {
+            return state.get().legacyDecrypt.doFinal(data, offset, length);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Decrypt error", e);
+        }
+    }
+
+    private State newState() {
+        try {
+            Cipher legacyEncrypt = Cipher.getInstance("AES");
+            legacyEncrypt.init(Cipher.ENCRYPT_MODE, legacyKey);
+            Cipher legacyDecrypt = Cipher.getInstance("AES");
+            legacyDecrypt.init(Cipher.DECRYPT_MODE, legacyKey);
+            return new State(Cipher.getInstance("AES/GCM/NoPadding"), legacyEncrypt, legacyDecrypt);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher init error", e);
+        }
+    }
+
+    private static final class State {
+        private final Cipher gcm;
+        private final Cipher legacyEncrypt;
+        private final Cipher legacyDecrypt;
+        private final byte[] iv = new byte[GCM_IV_LENGTH];
+
+        private State(Cipher gcm, Cipher legacyEncrypt, Cipher legacyDecrypt) {
+            this.gcm = gcm;
+            this.legacyEncrypt = legacyEncrypt;
+            this.legacyDecrypt = legacyDecrypt;
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.example.bankcards.util;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
 
 @Service
@@ -13,34 +15,55 @@ public class EncryptionService {
 
 
     private static final String KEY = "BankRestApisAndI";
+    private static final String GCM_KEY = "BankRestApisGcmCardNumberKey256!";
+    //':' is not in the Base64 alphabet, so the prefix never collides with a legacy value
+    public static final String GCM_PREFIX = "g1:";
+    //stored in cards.last_four_digits in front of the last four digits
+    public static final String MASK_PREFIX = "**** **** **** ";
 
-    public String encrypt(String data) {
+    private static final CardCipher CIPHER = new CardCipher(
+            GCM_KEY.getBytes(StandardCharsets.UTF_8),
+            KEY.getBytes(StandardCharsets.UTF_8));
+
+    private static final String BLIND_INDEX_KEY = "BankRestBlindIndexHmacSha256Key!";
+    private static final String BLIND_INDEX_ALGORITHM = "HmacSHA256";
+
+    //Mac is not thread-safe, one initialized instance per thread
+    private static final ThreadLocal<Mac> BLIND_INDEX_MAC = ThreadLocal.withInitial(() -> {
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(KEY.getBytes(), "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-            return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes()));
-        } catch (Exception e) {
-            throw new RuntimeException("Encrypt error", e);
+            Mac mac = Mac.getInstance(BLIND_INDEX_ALGORITHM);
+            mac.init(new SecretKeySpec(BLIND_INDEX_KEY.getBytes(StandardCharsets.UTF_8), BLIND_INDEX_ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Blind index init error", e);
         }
+    });
+
+    public String encrypt(String data) {
+        byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+        return GCM_PREFIX + Base64.getEncoder().encodeToString(CIPHER.encryptGcm(plain, 0, plain.length));
     }
 
+    //values without the prefix were written by the old AES/ECB code and still decrypt
     public String decrypt(String data) {
-        try {
-            SecretKeySpec secretKey = new SecretKeySpec(KEY.getBytes(), "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
-            return new String(cipher.doFinal(Base64.getDecoder().decode(data)));
-        } catch (Exception e) {
-            throw new RuntimeException("Decrypt error", e);
+        if (data.startsWith(GCM_PREFIX)) {
+            byte[] raw = Base64.getDecoder().decode(data.substring(GCM_PREFIX.length()));
+            return new String(CIPHER.decryptGcm(raw, 0, raw.length), StandardCharsets.UTF_8);
         }
+        byte[] raw = Base64.getDecoder().decode(data);
+        return new String(CIPHER.decryptLegacy(raw, 0, raw.length), StandardCharsets.UTF_8);
+    }
+
+    //keyed hash of the card number, 32 bytes, stable for the same number
+    public byte[] blindIndex(String cardNumber) {
+        return BLIND_INDEX_MAC.get().doFinal(cardNumber.getBytes(StandardCharsets.UTF_8));
     }
 
     public String maskNumber(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
-            return "**** **** **** ****";
+            return MASK_PREFIX + "****";
         }
-        return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
+        return MASK_PREFIX + cardNumber.substring(cardNumber.length() - 4);
     }
 
     public String generateCardNumber() {
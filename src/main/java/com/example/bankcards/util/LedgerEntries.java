@@ -0,0 +1,50 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.EntryDirection;
+import com.example.bankcards.entity.enums.TransactionType;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds the balanced legs written to the transactions table for every money movement.
+ * Legs of one movement share a transfer id and their signed amounts sum to zero.
+ * A fill is balanced by a debit leg without a card, standing for the external funding source.
+ */
+public final class LedgerEntries {
+
+    private LedgerEntries() {
+    }
+
+    public static List<Transaction> transfer(Card from, Card to, Money amount) {
+        UUID transferId = UUID.randomUUID();
+        return List.of(
+                leg(transferId, from, amount.negate(), EntryDirection.DEBIT, TransactionType.TRANSFER,
+                        "Transfer to card: " + to.getLastFourDigits()),
+                leg(transferId, to, amount, EntryDirection.CREDIT, TransactionType.TRANSFER,
+                        "Transfer from card: " + from.getLastFourDigits()));
+    }
+
+    public static List<Transaction> deposit(Card card, Money amount) {
+        UUID transferId = UUID.randomUUID();
+        return List.of(
+                leg(transferId, null, amount.negate(), EntryDirection.DEBIT, TransactionType.DEPOSIT,
+                        "Card fill funding: " + card.getLastFourDigits()),
+                leg(transferId, card, amount, EntryDirection.CREDIT, TransactionType.DEPOSIT,
+                        "Card fill operation!"));
+    }
+
+    private static Transaction leg(UUID transferId, Card card, Money signedAmount, EntryDirection direction,
+                                   TransactionType type, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setTransferId(transferId);
+        transaction.setCard(card);
+        transaction.setAmount(signedAmount);
+        transaction.setDirection(direction);
+        transaction.setTransactionType(type);
+        transaction.setDescription(description);
+        return transaction;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer.
+ * Producers claim a sequence with a CAS on the tail and publish the element into its slot;
+ * the consumer sees a slot as filled only once the element is visible, then frees it
+ * before moving the head, so a producer can never overwrite an unread element.
+ * {@link #offer} fails instead of blocking when the ring is full.
+ */
+public final class MpscRingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    public MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 1 || requestedCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be from 1 to 2^30");
+        }
+        //rounded up to a power of two so the slot index is a mask of the sequence
+        int size = 1;
+        while (size < requestedCapacity) size <<= 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(this.capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= capacity) return false;
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.lazySet((int) sequence & mask, element);
+        return true;
+    }
+
+    //consumer thread only; null when empty or when the next producer has claimed but not yet published
+    public E poll() {
+        long sequence = head.get();
+        int index = (int) sequence & mask;
+        E element = slots.get(index);
+        if (element == null) return null;
+        slots.lazySet(index, null);
+        head.lazySet(sequence + 1);
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
@@ -14,4 +14,10 @@ public interface RestConstants {
 
     String FAILED_TO_UPDATE = "Failed to update!";
     String PASSWORD_SUCCESSFULLY_UPDATED = "PASSWORD SUCCESSFULLY UPDATED";
+
+
+    //*****CARD*******//
+    int MAX_BATCH_TRANSFERS = 500;
+    String IDEMPOTENCY_KEY = "Idempotency-Key";
+    int MAX_BALANCE_SHARDS = 64;
 }
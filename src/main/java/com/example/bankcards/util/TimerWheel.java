@@ -0,0 +1,140 @@
+package com.example.bankcards.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical hashed timer wheel: {@value #LEVELS} levels of {@value #SLOTS} slots, each level
+ * covering {@value #SLOTS} times the span of the one below. Scheduling and cancelling are O(1):
+ * a timeout is linked into the slot chosen by its deadline and unlinked through its handle.
+ * Whenever the lowest level wraps, the next slot of the level above is cascaded down, so every
+ * timeout is moved at most once per level before it fires.
+ * <p>
+ * Deadlines further out than the wheel spans are parked in the top level and re-placed as they
+ * cascade. Not thread-safe on its own; callers synchronize on the wheel.
+ */
+public final class TimerWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    private final Timeout<T>[][] wheel;
+    //every tick up to this one (exclusive) has fired
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.wheel = new Timeout[LEVELS][SLOTS];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout<T> head = new Timeout<>(null, 0);
+                head.prev = head;
+                head.next = head;
+                this.wheel[level][slot] = head;
+            }
+        }
+    }
+
+    //a deadline already passed fires on the next advance
+    public Timeout<T> schedule(T item, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis + this.tickMillis - 1, this.tickMillis);
+        Timeout<T> timeout = new Timeout<>(item, Math.max(tick, this.currentTick));
+        this.place(timeout);
+        this.size++;
+        return timeout;
+    }
+
+    //false when the timeout already fired or was cancelled
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) return false;
+        timeout.unlink();
+        this.size--;
+        return true;
+    }
+
+    //fires every tick up to and including the one holding nowMillis, returns the items that came due
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = Math.floorDiv(nowMillis, this.tickMillis);
+        while (this.currentTick <= targetTick) {
+            int index = (int) (this.currentTick & MASK);
+            //the lowest level wrapped: pull the next slot of each higher level down, as far as needed
+            for (int level = 1; index == 0 && level < LEVELS; level++) {
+                index = (int) ((this.currentTick >>> (BITS * level)) & MASK);
+                this.cascade(level, index);
+            }
+            Timeout<T> head = this.wheel[0][(int) (this.currentTick & MASK)];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                timeout.unlink();
+                this.size--;
+                expired.add(timeout.item);
+            }
+            this.currentTick++;
+        }
+        return expired;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    private void cascade(int level, int index) {
+        Timeout<T> head = this.wheel[level][index];
+        while (head.next != head) {
+            Timeout<T> timeout = head.next;
+            timeout.unlink();
+            this.place(timeout);
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.tick - this.currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (BITS * (level + 1))) {
+            level++;
+        }
+        long tick = timeout.tick;
+        if (delta >= 1L << (BITS * LEVELS)) {
+            //beyond the wheel: park in the furthest top-level slot, it is re-placed when that slot cascades
+            tick = this.currentTick + (1L << (BITS * LEVELS)) - 1;
+        }
+        Timeout<T> head = this.wheel[level][(int) ((tick >>> (BITS * level)) & MASK)];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final long tick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+
+        public T item() {
+            return this.item;
+        }
+
+        private void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.prev = null;
+            this.next = null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.bankcards.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and re-runs it when the database reports
+ * a lock, deadlock, serialization or optimistic-lock conflict.
+ */
+@Slf4j
+public class TransactionRetryTemplate {
+
+    private final TransactionOperations transactionOperations;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    public TransactionRetryTemplate(TransactionOperations transactionOperations,
+                                    int maxAttempts,
+                                    long initialBackoffMs,
+                                    long maxBackoffMs) {
+        this.transactionOperations = transactionOperations;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = Math.max(0, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+    }
+
+    public <T> T execute(Supplier<T> action) {
+        long backoff = initialBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionOperations.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up after {} attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                log.debug("Concurrent update detected, retrying (attempt {}): {}", attempt, e.getMessage());
+                pause(backoff, e);
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    //full jitter, so that colliding transactions do not retry in lockstep
+    private void pause(long backoff, ConcurrencyFailureException cause) {
+        if (backoff <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoff + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same sequential transfers between a few cards sent one request at a time, against one
+ * transferMoneyBatch call per {@code batchSize} items. Scores are transfers per second.
+ * Runs on the in-memory test database; the balances are large enough that no transfer is refused.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchTransferBenchmark {
+
+    private static final int CARDS = 6;
+    private static final int BATCH_SIZE = 100;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private List<CardDto.TransferDto> plan;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test")
+                .run();
+        cardService = context.getBean(CardService.class);
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+
+        TestCards testCards = context.getBean(TestCards.class);
+        User owner = testCards.owner("Batch Benchmark");
+        List<String> numbers = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build());
+            numbers.add(number);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        plan = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int from = random.nextInt(CARDS);
+            CardDto.TransferDto transfer = new CardDto.TransferDto();
+            transfer.setCardFrom(numbers.get(from));
+            transfer.setCardTo(numbers.get((from + 1 + random.nextInt(CARDS - 1)) % CARDS));
+            transfer.setAmount(BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+            plan.add(transfer);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void single(Blackhole blackhole) {
+        for (CardDto.TransferDto transfer : plan) {
+            blackhole.consume(cardService.transferMoneyBetweenCards(
+                    transfer.getCardFrom(), transfer.getCardTo(), transfer.getAmount()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public ApiResponse batch() {
+        return cardService.transferMoneyBatch(plan);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(BatchTransferBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.support.TestCards;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills from 16 threads into one hot card: every credit updating the card row ({@code shards=0})
+ * against credits spread over balance shards. Runs on the in-memory test database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CardBalanceShardBenchmark {
+
+    @Param({"0", "8"})
+    private int shards;
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private String number;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test")
+                .run();
+        cardService = context.getBean(CardService.class);
+
+        TestCards testCards = context.getBean(TestCards.class);
+        number = testCards.number();
+        Long id = context.getBean(CardRepository.class)
+                .save(testCards.card(testCards.owner("Shard Benchmark"), number).build())
+                .getId();
+        if (shards > 0) {
+            cardService.setBalanceShards(id, shards);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ApiResponse fill() {
+        return cardService.fillCard(number, BigDecimal.ONE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CardBalanceShardBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.EncryptionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Card lookup by number: the old deterministic AES/ECB ciphertext matched against encrypted_number,
+ * against the HMAC blind index matched against number_hash. Both sides pay for deriving the key
+ * from the plain number and one indexed single-row query through the same JdbcTemplate.
+ * Runs on the in-memory test database, or on PostgreSQL when BANK_TEST_PG_URL is set.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardLookupBenchmark {
+
+    private static final int CARDS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private EncryptionService encryptionService;
+    private JdbcTemplate jdbcTemplate;
+    private String[] numbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test");
+        String url = System.getenv("BANK_TEST_PG_URL");
+        if (url != null && !url.isBlank()) {
+            application.properties(
+                    "spring.datasource.url=" + url,
+                    "spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "spring.datasource.username=" + System.getenv().getOrDefault("BANK_TEST_PG_USERNAME", "postgres"),
+                    "spring.datasource.password=" + System.getenv().getOrDefault("BANK_TEST_PG_PASSWORD", ""));
+        }
+        context = application.run();
+        encryptionService = context.getBean(EncryptionService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        //encrypted_number holds the legacy ciphertext, as it did before the blind index
+        TestCards testCards = context.getBean(TestCards.class);
+        User owner = testCards.owner("Lookup Benchmark");
+        numbers = new String[CARDS];
+        List<Card> cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            numbers[i] = testCards.number();
+            cards.add(testCards.card(owner, numbers[i])
+                    .encryptedNumber(EncryptionBenchmark.baselineEncrypt(numbers[i]))
+                    .build());
+        }
+        context.getBean(CardRepository.class).saveAll(cards);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    public Long baselineCipherText(Cursor cursor) {
+        String cipherText = EncryptionBenchmark.baselineEncrypt(this.number(cursor));
+        return jdbcTemplate.queryForObject("select id from cards where encrypted_number = ?", Long.class, cipherText);
+    }
+
+    @Benchmark
+    public Long blindIndex(Cursor cursor) {
+        byte[] numberHash = encryptionService.blindIndex(this.number(cursor));
+        return jdbcTemplate.queryForObject("select id from cards where number_hash = ?", Long.class, (Object) numberHash);
+    }
+
+    //walks the numbers so every lookup hits a different row
+    private String number(Cursor cursor) {
+        String number = numbers[cursor.next];
+        cursor.next = (cursor.next + 1) % CARDS;
+        return number;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CardLookupBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
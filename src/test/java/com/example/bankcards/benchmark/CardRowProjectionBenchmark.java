@@ -0,0 +1,107 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.dto.mapper.CardMapper;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.filter.CardFilter;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One page of the card list read and mapped in a read-only transaction: managed entities copied
+ * field by field as before, against the CardDto column projection. Runs on the in-memory test database.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardRowProjectionBenchmark {
+
+    private static final int CARDS = 1_000;
+    private static final String OWNER = "Rows Benchmark";
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private CardRepository cardRepository;
+    private CardMapper cardMapper;
+    private TransactionTemplate readOnly;
+    private CardFilter filter;
+    private Pageable pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test")
+                .run();
+        cardRepository = context.getBean(CardRepository.class);
+        cardMapper = context.getBean(CardMapper.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+
+        //every card has a hold, so available and total balance differ
+        TestCards testCards = context.getBean(TestCards.class);
+        User owner = testCards.owner(OWNER);
+        List<Card> cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            cards.add(testCards.card(owner)
+                    .balance(Money.of(BigDecimal.valueOf(100 + i)))
+                    .heldAmount(Money.of(BigDecimal.ONE))
+                    .build());
+        }
+        cardRepository.saveAll(cards);
+
+        filter = new CardFilter();
+        filter.setKeyword(OWNER);
+        filter.setDeleted(false);
+        pageable = PageRequest.of(0, pageSize, Sort.by(Sort.Direction.DESC, "id"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CardDto> entities() {
+        return readOnly.execute(status -> cardMapper.toDto(cardRepository.findAll(filter, pageable).getContent()));
+    }
+
+    @Benchmark
+    public List<CardDto> rows() {
+        return readOnly.execute(status -> cardMapper.toRowDto(cardRepository.findRows(filter, pageable).getContent()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CardRowProjectionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.EncryptionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Card number encryption: the original per-call Cipher code against EncryptionService.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    private static final String KEY = "BankRestApisAndI";
+
+    private final EncryptionService encryptionService = new EncryptionService();
+    private String cardNumber;
+    private String legacyCipherText;
+    private String gcmCipherText;
+
+    @Setup
+    public void setUp() {
+        cardNumber = encryptionService.generateCardNumber();
+        legacyCipherText = baselineEncrypt(cardNumber);
+        gcmCipherText = encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String baselineEncrypt() {
+        return baselineEncrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String baselineDecrypt() {
+        return baselineDecrypt(legacyCipherText);
+    }
+
+    @Benchmark
+    public String gcmEncrypt() {
+        return encryptionService.encrypt(cardNumber);
+    }
+
+    @Benchmark
+    public String gcmDecrypt() {
+        return encryptionService.decrypt(gcmCipherText);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+        return encryptionService.decrypt(legacyCipherText);
+    }
+
+    @Benchmark
+    public byte[] blindIndex() {
+        return encryptionService.blindIndex(cardNumber);
+    }
+
+    //EncryptionService before the cipher engine, kept here as the reference point
+    static String baselineEncrypt(String data) {
+        try {
+            SecretKeySpec secretKey = new SecretKeySpec(KEY.getBytes(), "AES");
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+            return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes()));
+        } catch (Exception e) {
+            throw new RuntimeException("Encrypt error", e);
+        }
+    }
+
+    private static String baselineDecrypt(String data) {
+        try {
+            SecretKeySpec secretKey = new SecretKeySpec(KEY.getBytes(), "AES");
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            return new String(cipher.doFinal(Base64.getDecoder().decode(data)));
+        } catch (Exception e) {
+            throw new RuntimeException("Decrypt error", e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EncryptionBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.UserStatus;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.JwtFilter;
+import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.SecurityConstants;
+import com.example.bankcards.security.TokenVersionRegistry;
+import com.example.bankcards.security.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token in JwtFilter,
+ * against the old flow that parsed and verified the token three times.
+ * The user lookup is an in-memory stub so only the token work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private final JwtProvider jwtProvider = new JwtProvider();
+    private JwtFilter jwtFilter;
+    private JwtFilter cachedJwtFilter;
+    private JwtFilter statelessJwtFilter;
+    private UserDetailsService userDetailsService;
+    private String header;
+    private String statelessHeader;
+    private String token;
+    private SecretKey signingKey;
+
+    @Setup
+    public void setUp() {
+        User user = User.builder()
+                .fullName("Bench User")
+                .username("bench")
+                .role(Role.USER)
+                .userStatus(UserStatus.ACTIVE)
+                .build();
+        user.setId(1L);
+        userDetailsService = username -> user;
+        //every user stays at version 0; the repository is only asked once per TTL
+        TokenVersionRegistry tokenVersionRegistry = new TokenVersionRegistry(Mockito.mock(UserRepository.class), 5000, 100);
+        jwtFilter = new JwtFilter(userDetailsService,
+                new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), false, 0),
+                tokenVersionRegistry, false);
+        cachedJwtFilter = new JwtFilter(userDetailsService,
+                new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), true, 10_000),
+                tokenVersionRegistry, false);
+        statelessJwtFilter = new JwtFilter(userDetailsService,
+                new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), true, 10_000),
+                tokenVersionRegistry, true);
+        token = jwtProvider.generateAccessToken("bench");
+        header = SecurityConstants.BEARER + token;
+        statelessHeader = SecurityConstants.BEARER + jwtProvider.generateAccessToken(user);
+        signingKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode(jwtProvider.getSecretKeyAsString()));
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object singleParseFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.AUTHORIZATION, header);
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public Object cachedFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.AUTHORIZATION, header);
+        cachedJwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    //principal rebuilt from claims, the stub lookup above stands in for a database round trip
+    @Benchmark
+    public Object statelessFilter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.AUTHORIZATION, statelessHeader);
+        statelessJwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    //the filter body before the single-parse pipeline
+    @Benchmark
+    public Object baselineFilter() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.AUTHORIZATION, header);
+        String authorizationHeader = request.getHeader(SecurityConstants.AUTHORIZATION);
+        String username = null;
+        String jwt = authorizationHeader.substring(7);
+        try {
+            username = baselineClaims(jwt).getSubject();
+            SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+        } catch (Exception ignored) {
+        }
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            boolean valid = baselineClaims(jwt).getSubject().equals(userDetails.getUsername())
+                    && !baselineClaims(jwt).getExpiration().before(new Date());
+            if (valid) {
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                        userDetails, null, userDetails.getAuthorities()));
+            }
+        }
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private Claims baselineClaims(String jwt) {
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .setAllowedClockSkewSeconds(30)
+                .build()
+                .parseClaimsJws(jwt)
+                .getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
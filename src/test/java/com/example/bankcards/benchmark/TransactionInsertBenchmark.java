@@ -0,0 +1,128 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@code ROWS} transaction rows in one database transaction. {@code rowByRow} is what IDENTITY
+ * forced before: one insert and one key read per row; the id still comes from the sequence so the rows
+ * cannot clash with the batched ones. {@code batched} saves entities through the repository with pooled
+ * sequence ids and JDBC batching. Scores are rows per second. The in-memory test database has no round
+ * trips to save, so the batching gain shows on PostgreSQL, used when BANK_TEST_PG_URL is set.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionInsertBenchmark {
+
+    private static final int ROWS = 500;
+
+    private ConfigurableApplicationContext context;
+    private TransactionRepository transactionRepository;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Card card;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test");
+        String url = System.getenv("BANK_TEST_PG_URL");
+        if (url != null && !url.isBlank()) {
+            application.properties(
+                    "spring.datasource.url=" + url,
+                    "spring.datasource.driver-class-name=org.postgresql.Driver",
+                    "spring.datasource.username=" + System.getenv().getOrDefault("BANK_TEST_PG_USERNAME", "postgres"),
+                    "spring.datasource.password=" + System.getenv().getOrDefault("BANK_TEST_PG_PASSWORD", ""));
+        }
+        context = application.run();
+        transactionRepository = context.getBean(TransactionRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        TestCards testCards = context.getBean(TestCards.class);
+        card = context.getBean(CardRepository.class).save(testCards.card(testCards.owner("Insert Benchmark")).build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Number> rowByRow() {
+        return transactionTemplate.execute(status -> {
+            List<Number> ids = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(
+                            "insert into transactions (id, description, transaction_type, amount, card_id, deleted) "
+                                    + "values (nextval('transactions_seq'), ?, ?, ?, ?, false)",
+                            new String[]{"id"});
+                    ps.setString(1, "baseline");
+                    ps.setString(2, TransactionType.DEPOSIT.name());
+                    ps.setBigDecimal(3, BigDecimal.ONE);
+                    ps.setLong(4, card.getId());
+                    return ps;
+                }, keyHolder);
+                ids.add(keyHolder.getKey());
+            }
+            return ids;
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Transaction> batched() {
+        return transactionTemplate.execute(status -> {
+            List<Transaction> transactions = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                transactions.add(Transaction.builder()
+                        .description("batched")
+                        .transactionType(TransactionType.DEPOSIT)
+                        .amount(Money.of(BigDecimal.ONE))
+                        .card(card)
+                        .build());
+            }
+            return transactionRepository.saveAll(transactions);
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransactionInsertBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
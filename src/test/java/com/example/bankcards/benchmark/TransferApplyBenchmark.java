@@ -0,0 +1,89 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The validate-and-apply step of a transfer: amount check, funds check, debit and credit.
+ * BigDecimal balances as before against {@link Money} minor units; {@code minorUnitsFromRequest}
+ * also pays for converting the request amount at the API edge.
+ * Run with {@code main}; the GC profiler reports bytes allocated per op as gc.alloc.rate.norm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferApplyBenchmark {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+
+    private final BigDecimal requestAmount = new BigDecimal("12.34");
+    private final Money amount = Money.of(requestAmount);
+
+    private BigDecimal decimalFrom;
+    private BigDecimal decimalTo;
+    private Money moneyFrom;
+    private Money moneyTo;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        decimalFrom = INITIAL_BALANCE;
+        decimalTo = BigDecimal.ZERO;
+        moneyFrom = Money.of(INITIAL_BALANCE);
+        moneyTo = Money.ZERO;
+    }
+
+    @Benchmark
+    public boolean baselineDecimal() {
+        if (requestAmount.compareTo(BigDecimal.ZERO) <= 0) return false;
+        if (decimalFrom.compareTo(requestAmount) < 0) {
+            //money ran out on one side, send it back the other way
+            BigDecimal drained = decimalFrom;
+            decimalFrom = decimalTo;
+            decimalTo = drained;
+        }
+        decimalFrom = decimalFrom.subtract(requestAmount);
+        decimalTo = decimalTo.add(requestAmount);
+        return true;
+    }
+
+    @Benchmark
+    public boolean minorUnits() {
+        return apply(amount);
+    }
+
+    @Benchmark
+    public boolean minorUnitsFromRequest() {
+        return apply(Money.of(requestAmount));
+    }
+
+    private boolean apply(Money value) {
+        if (!value.isPositive()) return false;
+        if (moneyFrom.isLessThan(value)) {
+            Money drained = moneyFrom;
+            moneyFrom = moneyTo;
+            moneyTo = drained;
+        }
+        moneyFrom = moneyFrom.minus(value);
+        moneyTo = moneyTo.plus(value);
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransferApplyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput over a few hot cards from 32 threads: each transfer locking its rows in its own
+ * transaction ({@code netting=false}) against the netting stage folding a tick of transfers into one
+ * write per card ({@code netting=true}). Runs on the in-memory test database;
+ * the balances are large enough that no transfer is refused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class TransferNettingBenchmark {
+
+    private static final int CARDS = 6;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000.00");
+
+    @Param({"false", "true"})
+    private boolean netting;
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private final List<String> numbers = new ArrayList<>(CARDS);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles("test")
+                .properties("bank.transfer.netting.enabled=" + netting, "bank.transfer.netting.tick-ms=2")
+                .run();
+        cardService = context.getBean(CardService.class);
+        CardRepository cardRepository = context.getBean(CardRepository.class);
+
+        TestCards testCards = context.getBean(TestCards.class);
+        User owner = testCards.owner("Netting Benchmark");
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build());
+            numbers.add(number);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ApiResponse transfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(CARDS);
+        int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+        return cardService.transferMoneyBetweenCards(numbers.get(from), numbers.get(to),
+                BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TransferNettingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bankcards.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(roles = "USER")
+class CardControllerTest {
+
+    private static final String BATCH = "/api/v1/cars/transfer-money/batch";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @DisplayName("Batch items are validated before any card is touched")
+    void testTransferMoneyBatch_InvalidItem() throws Exception {
+        mockMvc.perform(post(BATCH).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\":[{\"cardFrom\":\"\",\"cardTo\":\"2222\",\"amount\":-1}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['transfers[0].cardFrom']").exists())
+                .andExpect(jsonPath("$.errors['transfers[0].amount']").exists());
+    }
+
+    @Test
+    @DisplayName("A null batch item is answered on its own instead of failing the batch")
+    void testTransferMoneyBatch_NullItem() throws Exception {
+        mockMvc.perform(post(BATCH).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\":[null,{\"cardFrom\":\"1111\",\"cardTo\":\"2222\",\"amount\":1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].status").value("BAD_REQUEST"))
+                .andExpect(jsonPath("$.data[1].status").value("NOT_FOUND"));
+    }
+}
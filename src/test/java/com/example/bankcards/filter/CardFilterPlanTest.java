@@ -0,0 +1,155 @@
+package com.example.bankcards.filter;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.TestCards;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Query-plan regression test for the keyword search. Runs against PostgreSQL when
+ * BANK_TEST_PG_URL is set and falls back to the H2 test profile otherwise; the trigram
+ * checks only apply to PostgreSQL. Criteria values are inlined so the captured SQL can be
+ * explained as it is.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.criteria.value_handling_mode=inline",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.bankcards.filter.CardFilterPlanTest$CapturingInspector"})
+@ActiveProfiles("test")
+class CardFilterPlanTest {
+
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private boolean postgres;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("BANK_TEST_PG_URL");
+        if (url == null || url.isBlank()) return;
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("BANK_TEST_PG_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("BANK_TEST_PG_PASSWORD", ""));
+    }
+
+    @BeforeEach
+    void setUp() {
+        postgres = "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        //enough distinct rows for the statistics to tell the indexes apart
+        if (cardRepository.count() < 500) {
+            createCards(500);
+        }
+        jdbcTemplate.execute(postgres ? "ANALYZE cards" : "ANALYZE");
+    }
+
+    @Test
+    @DisplayName("A four-digit search is an exact lookup on the last_four_digits index")
+    void testFourDigitSearch_UsesLastFourDigitsIndex() {
+        String plan = explain(capture("4321"));
+
+        assertNoSeqScan(plan);
+        assertTrue(plan.contains("idx_cards_last_four_digits"), plan);
+    }
+
+    @Test
+    @DisplayName("Substring searches on names and digits are served by the trigram indexes")
+    void testSubstringSearch_UsesTrigramIndexes() {
+        assumeTrue(postgres, "pg_trgm needs PostgreSQL, H2 scans");
+
+        String namePlan = explain(capture("nna"));
+        assertNoSeqScan(namePlan);
+        assertTrue(namePlan.contains("idx_cards_owner_name_trgm"), namePlan);
+
+        String digitsPlan = explain(capture("321"));
+        assertNoSeqScan(digitsPlan);
+        assertTrue(digitsPlan.contains("idx_cards_owner_name_trgm"), digitsPlan);
+        assertTrue(digitsPlan.contains("idx_cards_last_four_digits_trgm"), digitsPlan);
+    }
+
+    //the SQL Hibernate sends for a keyword search through CardFilter
+    private String capture(String keyword) {
+        CardFilter filter = new CardFilter();
+        filter.setKeyword(keyword);
+        filter.setDeleted(false);
+        CAPTURED.set(new ArrayList<>());
+        try {
+            cardRepository.findAll(filter);
+            return CAPTURED.get().stream()
+                    .filter(sql -> sql.toLowerCase().contains("from cards"))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("No card query captured: " + CAPTURED.get()));
+        } finally {
+            CAPTURED.remove();
+        }
+    }
+
+    //with sequential scans priced out, a Seq Scan left in the plan means no index can serve the query
+    private String explain(String sql) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> rows = transaction.execute(status -> {
+            if (postgres) {
+                jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+            }
+            return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        });
+        return String.join("\n", rows).toLowerCase();
+    }
+
+    private void assertNoSeqScan(String plan) {
+        assertFalse(plan.contains(postgres ? "seq scan on cards " : "public.cards.tablescan"), plan);
+    }
+
+    private void createCards(int count) {
+        User owner = testCards.owner("Plan Owner");
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(testCards.card(owner).ownerName("Owner " + UUID.randomUUID()).build());
+        }
+        cardRepository.saveAll(cards);
+    }
+
+    public static class CapturingInspector implements StatementInspector {
+
+        @Override
+        public String inspect(String sql) {
+            List<String> captured = CAPTURED.get();
+            if (captured != null) {
+                captured.add(sql);
+            }
+            return sql;
+        }
+    }
+}
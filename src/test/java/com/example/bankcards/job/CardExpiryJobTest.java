@@ -0,0 +1,111 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.CardExpiryDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.JobCheckpoint;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.JobCheckpointRepository;
+import com.example.bankcards.support.TestCards;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.card.expiry.range-size=7")
+@ActiveProfiles("test")
+class CardExpiryJobTest {
+
+    @Autowired
+    private CardExpiryJob cardExpiryJob;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Cards past their expiry date are expired range by range, the others are left alone")
+    void testExpire_ExpiresOnlyPastCards() {
+        LocalDate runDate = LocalDate.now().plusDays(3);
+        List<Card> past = createCards(20, runDate.minusDays(1), CardStatus.ACTIVE);
+        List<Card> blocked = createCards(3, runDate.minusMonths(1), CardStatus.BLOCKED);
+        List<Card> valid = createCards(10, runDate, CardStatus.ACTIVE);
+
+        CardExpiryDto result = cardExpiryJob.expire(runDate);
+
+        assertTrue(result.isCompleted());
+        assertEquals(23, result.getExpired());
+        assertTrue(result.getRanges() >= 33 / 7);
+        for (Card card : reload(past)) {
+            assertEquals(CardStatus.EXPIRED, card.getStatus());
+        }
+        for (Card card : reload(blocked)) {
+            assertEquals(CardStatus.EXPIRED, card.getStatus());
+        }
+        for (Card card : reload(valid)) {
+            assertEquals(CardStatus.ACTIVE, card.getStatus());
+        }
+        //the bulk update bumps the version, so a transfer holding an older copy of the card retries
+        assertTrue(reload(past).get(0).getVersion() > past.get(0).getVersion());
+
+        //the run is done for this date
+        assertEquals(0, cardExpiryJob.expire(runDate).getExpired());
+    }
+
+    @Test
+    @DisplayName("An interrupted run resumes after the last committed range")
+    void testExpire_ResumesFromCheckpoint() {
+        LocalDate runDate = LocalDate.now().plusDays(5);
+        List<Card> cards = createCards(30, runDate.minusDays(1), CardStatus.ACTIVE);
+        long crashedAfter = cards.get(14).getId();
+        //as left behind by a node that died after committing the range ending at crashedAfter
+        checkpointRepository.save(JobCheckpoint.builder()
+                .jobName(CardExpiryJob.JOB_NAME)
+                .runDate(runDate)
+                .lastId(crashedAfter)
+                .completed(false)
+                .updatedAt(LocalDateTime.now())
+                .build());
+
+        CardExpiryDto result = cardExpiryJob.expire(runDate);
+
+        assertEquals(15, result.getExpired());
+        for (Card card : reload(cards)) {
+            //cards at or below the checkpoint count as done and are not scanned again
+            CardStatus expected = card.getId() <= crashedAfter ? CardStatus.ACTIVE : CardStatus.EXPIRED;
+            assertEquals(expected, card.getStatus());
+        }
+        JobCheckpoint checkpoint = checkpointRepository.findById(CardExpiryJob.JOB_NAME).orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(runDate, checkpoint.getRunDate());
+    }
+
+    private List<Card> reload(List<Card> cards) {
+        return cardRepository.findAllById(cards.stream().map(Card::getId).toList()).stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .toList();
+    }
+
+    private List<Card> createCards(int count, LocalDate expiryDate, CardStatus status) {
+        User owner = testCards.owner("Expiry Owner");
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(testCards.card(owner).status(status).expiryDate(expiryDate).build());
+        }
+        return cardRepository.saveAll(cards);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.TestCards;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.card.expiry.timer.batch-size=3")
+@ActiveProfiles("test")
+class CardExpirySchedulerTest {
+
+    @Autowired
+    private CardExpiryScheduler cardExpiryScheduler;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Cards are expired once their expiry date has ended, later ones stay active")
+    void testExpireDue_FlipsEndedDatesOnly() {
+        LocalDate today = LocalDate.now();
+        List<Card> ended = createCards(7, today.minusDays(1));
+        List<Card> endingTonight = createCards(2, today);
+        List<Card> later = createCards(2, today.plusYears(1));
+
+        //the new cards are picked up as edits of the window loaded at startup
+        cardExpiryScheduler.refresh();
+        assertTrue(cardExpiryScheduler.tracked() >= endingTonight.size());
+        cardExpiryScheduler.expireDue();
+
+        for (Card card : reload(ended)) {
+            assertEquals(CardStatus.EXPIRED, card.getStatus());
+        }
+        for (Card card : reload(endingTonight)) {
+            assertEquals(CardStatus.ACTIVE, card.getStatus());
+        }
+        for (Card card : reload(later)) {
+            assertEquals(CardStatus.ACTIVE, card.getStatus());
+        }
+        //nothing left that has ended
+        assertEquals(0, cardExpiryScheduler.expireDue());
+    }
+
+    private List<Card> reload(List<Card> cards) {
+        return cardRepository.findAllById(cards.stream().map(Card::getId).toList());
+    }
+
+    private List<Card> createCards(int count, LocalDate expiryDate) {
+        User owner = testCards.owner("Expiry Timer Owner");
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(testCards.card(owner).expiryDate(expiryDate).build());
+        }
+        return cardRepository.saveAll(cards);
+    }
+}
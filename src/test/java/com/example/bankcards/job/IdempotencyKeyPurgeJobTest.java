@@ -0,0 +1,98 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.IdempotencyService;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.idempotency.purge.chunk-size=3")
+@ActiveProfiles("test")
+class IdempotencyKeyPurgeJobTest {
+
+    @Autowired
+    private IdempotencyKeyPurgeJob idempotencyKeyPurgeJob;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private TransactionRetryTemplate transactionRetryTemplate;
+
+    @Test
+    @DisplayName("Expired keys are deleted chunk by chunk, live keys are kept")
+    void testPurge_DeletesOnlyExpiredKeys() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> expired = createKeys(10, now.minusMinutes(1));
+        List<String> live = createKeys(4, now.plusHours(1));
+
+        assertEquals(10, idempotencyKeyPurgeJob.purge(now));
+
+        for (String key : expired) {
+            assertFalse(idempotencyRecordRepository.existsById(key));
+        }
+        for (String key : live) {
+            assertTrue(idempotencyRecordRepository.existsById(key));
+        }
+        assertEquals(0, idempotencyKeyPurgeJob.purge(now));
+    }
+
+    @Test
+    @DisplayName("A key that expired before the purge reached it runs again and replaces its row")
+    void testExpiredKey_RunsAgainBeforePurge() {
+        String idempotencyKey = UUID.randomUUID().toString();
+        String scopedKey = "fill-card:anonymous:" + idempotencyKey;
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.save(IdempotencyRecord.builder()
+                .idempotencyKey(scopedKey)
+                .requestHash("hash")
+                .response("{}")
+                .createdAt(now.minusDays(1))
+                .expiresAt(now.minusMinutes(1))
+                .build());
+        AtomicInteger runs = new AtomicInteger();
+
+        ApiResponse response = idempotencyService.execute(idempotencyKey, "fill-card", "a|10", key ->
+                transactionRetryTemplate.execute(() -> {
+                    runs.incrementAndGet();
+                    return idempotencyService.store(key, ApiResponse.builder().status(HttpStatus.OK).message("done").build());
+                }));
+
+        assertEquals(1, runs.get());
+        assertEquals("done", response.getMessage());
+        assertTrue(idempotencyRecordRepository.findById(scopedKey).orElseThrow().getExpiresAt().isAfter(now));
+    }
+
+    private List<String> createKeys(int count, LocalDateTime expiresAt) {
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String key = "purge:test:" + UUID.randomUUID();
+            idempotencyRecordRepository.save(IdempotencyRecord.builder()
+                    .idempotencyKey(key)
+                    .requestHash("hash")
+                    .response("{}")
+                    .createdAt(expiresAt.minusDays(1))
+                    .expiresAt(expiresAt)
+                    .build());
+            keys.add(key);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.ReconciliationDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.ReconciliationMismatch;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.ReconciliationMismatchRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.CardService;
+import com.example.bankcards.support.TestCards;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class LedgerReconciliationJobTest {
+
+    private static final int CARDS = 400;
+
+    @Autowired
+    private LedgerReconciliationJob ledgerReconciliationJob;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ReconciliationMismatchRepository mismatchRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Only the card whose balance was changed outside the ledger is reported")
+    void testReconcile_ReportsTamperedCard() {
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        User owner = testCards.owner("Reconcile Owner");
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            ids.add(cardRepository.save(testCards.card(owner, number).build()).getId());
+            numbers.add(number);
+        }
+        for (int i = 0; i < CARDS; i++) {
+            cardService.fillCard(numbers.get(i), new BigDecimal("50.00"));
+            cardService.transferMoneyBetweenCards(numbers.get(i), numbers.get((i + 1) % CARDS), new BigDecimal("20.00"));
+        }
+        Long tampered = ids.get(CARDS / 2);
+        jdbcTemplate.update("update cards set balance = balance + 1 where id = ?", tampered);
+
+        ReconciliationDto result = ledgerReconciliationJob.reconcile();
+
+        Map<Long, ReconciliationMismatch> mismatches = mismatchRepository
+                .findAllByRunId(result.getRunId(), Pageable.unpaged())
+                .stream()
+                .collect(Collectors.toMap(ReconciliationMismatch::getCardId, m -> m));
+        assertTrue(result.getCardsChecked() >= CARDS);
+        assertTrue(mismatches.containsKey(tampered));
+        assertEquals(0, BigDecimal.ONE.compareTo(mismatches.get(tampered).getDifference()));
+        for (Long id : ids) {
+            if (!id.equals(tampered)) assertFalse(mismatches.containsKey(id), "Card " + id + " reported");
+        }
+
+        //same check on a single connection, to see how the range split scales
+        LedgerReconciliationJob sequential = new LedgerReconciliationJob(cardRepository, transactionRepository,
+                mismatchRepository, transactionManager, true, 50, 1);
+        ReconciliationDto single = sequential.reconcile();
+        LedgerReconciliationJob parallel = new LedgerReconciliationJob(cardRepository, transactionRepository,
+                mismatchRepository, transactionManager, true, 50, Runtime.getRuntime().availableProcessors());
+        ReconciliationDto multi = parallel.reconcile();
+        assertEquals(single.getCardsChecked(), multi.getCardsChecked());
+        assertEquals(single.getMismatches(), multi.getMismatches());
+        log.info(String.format("Reconciliation of %d cards: 1 connection %d ms, %d connections %d ms",
+                multi.getCardsChecked(), single.getElapsedMs(), multi.getParallelism(), multi.getElapsedMs()));
+    }
+}
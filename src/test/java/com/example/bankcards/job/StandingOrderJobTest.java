@@ -0,0 +1,125 @@
+package com.example.bankcards.job;
+
+import com.example.bankcards.dto.StandingOrderDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.StandingOrder;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.StandingOrderFrequency;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.StandingOrderRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.standing-order.chunk-size=100")
+@ActiveProfiles("test")
+class StandingOrderJobTest {
+
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private StandingOrderJob standingOrderJob;
+
+    @Autowired
+    private StandingOrderRepository standingOrderRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Due orders run in chunks, each once, and move to their next period")
+    void testRunDue_ExecutesInChunks() {
+        List<Card> cards = createCards(2);
+        LocalDateTime due = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.MICROS);
+        List<StandingOrder> orders = createOrders(cards.get(0), cards.get(1), 250, new BigDecimal("1.00"), due);
+        //more than the sender has: reported on the order, the period is still consumed
+        orders.addAll(createOrders(cards.get(0), cards.get(1), 1, new BigDecimal("5000.00"), due));
+        StandingOrder future = createOrders(cards.get(1), cards.get(0), 1, BigDecimal.ONE,
+                LocalDateTime.now().plusDays(1)).get(0);
+        long transactionsBefore = transactionRepository.count();
+
+        StandingOrderDto.RunDto run = standingOrderJob.runDue();
+
+        assertEquals(251, run.getClaimed());
+        assertEquals(250, run.getSucceeded());
+        assertEquals(1, run.getFailed());
+        assertTrue(run.getMaxLagMs() >= 3_600_000L);
+        assertEquals(500, transactionRepository.count() - transactionsBefore);
+        assertEquals(Money.of(new BigDecimal("750.00")), cardRepository.findById(cards.get(0).getId()).orElseThrow().getBalance());
+        assertEquals(Money.of(new BigDecimal("1250.00")), cardRepository.findById(cards.get(1).getId()).orElseThrow().getBalance());
+        for (StandingOrder order : standingOrderRepository.findAllById(orders.stream().map(StandingOrder::getId).toList())) {
+            assertEquals(due.plusMonths(1), order.getNextRunAt());
+            assertNotNull(order.getLastRunAt());
+        }
+        StandingOrder failed = standingOrderRepository.findById(orders.get(orders.size() - 1).getId()).orElseThrow();
+        assertEquals("BAD_REQUEST", failed.getLastStatus());
+        assertNull(standingOrderRepository.findById(future.getId()).orElseThrow().getLastRunAt());
+
+        assertEquals(0, standingOrderJob.runDue().getClaimed());
+    }
+
+    @Test
+    @DisplayName("Two schedulers running at once pay every order exactly once")
+    void testRunDue_ConcurrentRunsClaimDisjointOrders() {
+        List<Card> cards = createCards(4);
+        LocalDateTime due = LocalDateTime.now().minusMinutes(5);
+        int perPair = 150;
+        createOrders(cards.get(0), cards.get(1), perPair, new BigDecimal("2.00"), due);
+        createOrders(cards.get(2), cards.get(3), perPair, new BigDecimal("3.00"), due);
+
+        CompletableFuture<StandingOrderDto.RunDto> first = CompletableFuture.supplyAsync(standingOrderJob::runDue);
+        CompletableFuture<StandingOrderDto.RunDto> second = CompletableFuture.supplyAsync(standingOrderJob::runDue);
+        int claimed = first.join().getClaimed() + second.join().getClaimed();
+
+        assertEquals(2 * perPair, claimed);
+        assertEquals(Money.of(new BigDecimal("700.00")), cardRepository.findById(cards.get(0).getId()).orElseThrow().getBalance());
+        assertEquals(Money.of(new BigDecimal("1300.00")), cardRepository.findById(cards.get(1).getId()).orElseThrow().getBalance());
+        assertEquals(Money.of(new BigDecimal("550.00")), cardRepository.findById(cards.get(2).getId()).orElseThrow().getBalance());
+        assertEquals(Money.of(new BigDecimal("1450.00")), cardRepository.findById(cards.get(3).getId()).orElseThrow().getBalance());
+    }
+
+    private List<StandingOrder> createOrders(Card from, Card to, int count, BigDecimal amount, LocalDateTime nextRunAt) {
+        List<StandingOrder> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(StandingOrder.builder()
+                    .fromCardId(from.getId())
+                    .toCardId(to.getId())
+                    .amount(Money.of(amount))
+                    .frequency(StandingOrderFrequency.MONTHLY)
+                    .status(StandingOrderStatus.ACTIVE)
+                    .nextRunAt(nextRunAt)
+                    .build());
+        }
+        return new ArrayList<>(standingOrderRepository.saveAll(orders));
+    }
+
+    private List<Card> createCards(int count) {
+        User owner = testCards.owner("Standing Order Owner");
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(cardRepository.save(testCards.card(owner).balance(Money.of(INITIAL_BALANCE)).build()));
+        }
+        return cards;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.mapper.CardMapper;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.filter.CardFilter;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardRowProjectionTest {
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardMapper cardMapper;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Card rows map to the same DTOs as entities and leave the persistence context empty")
+    void testFindRows_SameDtosAsEntities() {
+        String tag = UUID.randomUUID().toString();
+        createCards(tag, 30);
+        CardFilter filter = filter(tag);
+        Pageable pageable = PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "id"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Page<CardRepository.CardRow> rows = cardRepository.findRows(filter, pageable);
+            assertEquals(0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+
+            Page<Card> cards = cardRepository.findAll(filter, pageable);
+            assertEquals(cards.getTotalElements(), rows.getTotalElements());
+            assertEquals(cards.getTotalPages(), rows.getTotalPages());
+            assertEquals(cardMapper.toDto(cards.getContent()), cardMapper.toRowDto(rows.getContent()));
+        });
+    }
+
+    private CardFilter filter(String tag) {
+        CardFilter filter = new CardFilter();
+        filter.setKeyword(tag);
+        filter.setDeleted(false);
+        return filter;
+    }
+
+    //every card has a hold, so available and total balance differ
+    private void createCards(String tag, int count) {
+        User owner = testCards.owner("Rows " + tag);
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(testCards.card(owner)
+                    .balance(Money.of(BigDecimal.valueOf(100 + i)))
+                    .heldAmount(Money.of(BigDecimal.ONE))
+                    .build());
+        }
+        cardRepository.saveAll(cards);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.bankcards.repository;
+
+import liquibase.Contexts;
+import liquibase.LabelExpression;
+import liquibase.Liquibase;
+import liquibase.database.Database;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrates a database holding pre-ledger data (single transfer rows, receivers without any row)
+ * and checks that every card's balance is covered by its legs afterwards.
+ */
+class LedgerBackfillMigrationTest {
+
+    private static final String CHANGELOG = "db/changelog/db.changelog-master.yaml";
+    //changesets 1-9: the schema before transfers were written as legs
+    private static final int LEGACY_CHANGESETS = 9;
+
+    @Test
+    @DisplayName("Legacy transfers and fills reconcile with card balances after the ledger migrations")
+    @SuppressWarnings("deprecation")
+    void testMigration_LedgerSumsEqualCardBalances() throws Exception {
+        String url = "jdbc:h2:mem:legacy_" + UUID.randomUUID()
+                + ";MODE=PostgreSQL;DEFAULT_NULL_ORDERING=HIGH";
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+            liquibase(dataSource).update(LEGACY_CHANGESETS, new Contexts(), new LabelExpression());
+
+            //1 filled with 100, sent 30 to 2 and received 10 from it; 3 filled with 50; 4 untouched
+            jdbc.update("insert into users (id, full_name, username, password, role, user_status) " +
+                    "values (1, 'Legacy Owner', 'legacy', 'x', 'USER', 'ACTIVE')");
+            card(jdbc, 1, "80.00");
+            card(jdbc, 2, "20.00");
+            card(jdbc, 3, "50.00");
+            card(jdbc, 4, "0.00");
+            transaction(jdbc, 1, "DEPOSIT", "100.00", 1);
+            transaction(jdbc, 2, "TRANSFER", "30.00", 1);
+            transaction(jdbc, 3, "TRANSFER", "10.00", 2);
+            transaction(jdbc, 4, "DEPOSIT", "50.00", 3);
+            //what changeset 8 does on PostgreSQL: the next pooled block starts after the existing rows
+            jdbc.execute("alter sequence transactions_seq restart with 51");
+
+            liquibase(dataSource).update(new Contexts(), new LabelExpression());
+
+            List<Map<String, Object>> totals = jdbc.queryForList(
+                    "select c.id, c.balance, coalesce(sum(t.amount), 0) as ledger from cards c " +
+                            "left join transactions t on t.card_id = c.id group by c.id, c.balance order by c.id");
+            assertEquals(4, totals.size());
+            for (Map<String, Object> row : totals) {
+                assertEquals(0, ((BigDecimal) row.get("balance")).compareTo((BigDecimal) row.get("ledger")),
+                        "card " + row.get("id"));
+            }
+
+            //only the cards that did not add up got an opening leg, each balanced within its transfer id
+            assertEquals(List.of(1L, 2L), jdbc.queryForList(
+                    "select card_id from transactions where description = 'Opening balance' order by card_id", Long.class));
+            assertEquals(List.of(new BigDecimal("10.00"), new BigDecimal("30.00")), jdbc.queryForList(
+                    "select amount from transactions where description = 'Opening balance' order by card_id",
+                    BigDecimal.class));
+            assertEquals(0, jdbc.queryForObject(
+                    "select count(*) from (select transfer_id from transactions where transfer_id is not null " +
+                            "group by transfer_id having sum(amount) <> 0 or count(*) <> 2) unbalanced", Integer.class));
+        } finally {
+            dataSource.destroy();
+        }
+    }
+
+    //a fresh instance per run, so the second run reads the changelog history written by the first
+    private Liquibase liquibase(SingleConnectionDataSource dataSource) throws Exception {
+        Database database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(dataSource.getConnection()));
+        return new Liquibase(CHANGELOG, new ClassLoaderResourceAccessor(), database);
+    }
+
+    private void card(JdbcTemplate jdbc, long id, String balance) {
+        jdbc.update("insert into cards (id, encrypted_number, last_four_digits, owner_name, status, balance, owner_id) " +
+                "values (?, ?, ?, 'Legacy Owner', 'ACTIVE', ?, 1)", id, "legacy-" + id, "000" + id, new BigDecimal(balance));
+    }
+
+    private void transaction(JdbcTemplate jdbc, long id, String type, String amount, long cardId) {
+        jdbc.update("insert into transactions (id, description, transaction_type, amount, card_id) values (?, ?, ?, ?, ?)",
+                id, type.toLowerCase(), type, new BigDecimal(amount), cardId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.enums.TransactionType;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TransactionBatchInsertTest {
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Bulk transaction inserts get distinct ids and go out in JDBC batches")
+    void testBulkInsert_Batched() {
+        Card card = createCard();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        //pooled sequence ids and JDBC batching through the repository
+        List<Transaction> saved = transactionTemplate.execute(status -> {
+            List<Transaction> transactions = new ArrayList<>(ROWS);
+            for (int i = 0; i < ROWS; i++) {
+                transactions.add(Transaction.builder()
+                        .description("batched")
+                        .transactionType(TransactionType.DEPOSIT)
+                        .amount(Money.of(BigDecimal.ONE))
+                        .card(card)
+                        .build());
+            }
+            return transactionRepository.saveAll(transactions);
+        });
+        long statements = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        assertEquals(ROWS, new HashSet<>(saved.stream().map(Transaction::getId).toList()).size());
+        assertTrue(statements < ROWS / 10, "Expected batched inserts, got " + statements + " statements");
+    }
+
+    private Card createCard() {
+        return cardRepository.save(testCards.card(testCards.owner("Batch Owner")).build());
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.UserStatus;
+import com.example.bankcards.exception.UserNotFoundException;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomUserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private CustomUserDetailsServiceImpl userDetailsService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new CustomUserDetailsServiceImpl(userRepository, new SimpleMeterRegistry(), 100, 300);
+        testUser = User.builder()
+                .fullName("John Doe")
+                .username("johndoe")
+                .password("encodedPassword")
+                .role(Role.USER)
+                .userStatus(UserStatus.ACTIVE)
+                .build();
+        testUser.setId(1L);
+    }
+
+    @Test
+    @DisplayName("Should query the user once on a warm cache")
+    void testLoadUserByUsername_Cached() {
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+
+        assertSame(testUser, userDetailsService.loadUserByUsername("johndoe"));
+        assertSame(testUser, userDetailsService.loadUserByUsername("johndoe"));
+
+        verify(userRepository, times(1)).findByUsername("johndoe");
+        assertEquals(1, userDetailsService.stats().hitCount());
+    }
+
+    @Test
+    @DisplayName("Should reload the user after a security change")
+    void testOnUserSecurityChanged_Evicts() {
+        when(userRepository.findByUsername("johndoe")).thenReturn(Optional.of(testUser));
+        userDetailsService.loadUserByUsername("johndoe");
+
+        userDetailsService.onUserSecurityChanged(new UserSecurityChangedEvent(1L, "johndoe", 1L));
+        userDetailsService.loadUserByUsername("johndoe");
+
+        verify(userRepository, times(2)).findByUsername("johndoe");
+    }
+
+    @Test
+    @DisplayName("Should not cache a missing user")
+    void testLoadUserByUsername_NotFound() {
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userDetailsService.loadUserByUsername("unknown"));
+        assertThrows(UserNotFoundException.class, () -> userDetailsService.loadUserByUsername("unknown"));
+
+        verify(userRepository, times(2)).findByUsername("unknown");
+    }
+}
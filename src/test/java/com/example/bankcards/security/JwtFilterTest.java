@@ -0,0 +1,120 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.UserStatus;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtFilterTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final JwtProvider jwtProvider = new JwtProvider();
+    private TokenVersionRegistry tokenVersionRegistry;
+    private JwtFilter statelessFilter;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenVersionRegistry = new TokenVersionRegistry(userRepository, 60_000, 100);
+        statelessFilter = new JwtFilter(userDetailsService,
+                new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), true, 100),
+                tokenVersionRegistry, true);
+        user = User.builder()
+                .fullName("John Doe")
+                .username("johndoe")
+                .role(Role.ADMIN)
+                .userStatus(UserStatus.ACTIVE)
+                .build();
+        user.setId(7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should authenticate from token claims without loading the user")
+    void testStateless_AuthenticatesFromClaims() throws Exception {
+        Authentication authentication = filter(statelessFilter, jwtProvider.generateAccessToken(user));
+
+        assertNotNull(authentication);
+        User principal = (User) authentication.getPrincipal();
+        assertEquals(7L, principal.getId());
+        assertEquals("johndoe", principal.getUsername());
+        assertEquals(Role.ADMIN, principal.getRole());
+        assertTrue(authentication.getAuthorities().stream()
+                .anyMatch(authority -> authority.getAuthority().contains("ADMIN")));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    @DisplayName("Should reject a token issued before the user's security change")
+    void testStateless_RejectsStaleVersion() throws Exception {
+        String token = jwtProvider.generateAccessToken(user);
+        tokenVersionRegistry.onUserSecurityChanged(new UserSecurityChangedEvent(7L, "johndoe", 1L));
+
+        assertNull(filter(statelessFilter, token));
+
+        user.setTokenVersion(1L);
+        assertNotNull(filter(statelessFilter, jwtProvider.generateAccessToken(user)));
+    }
+
+    @Test
+    @DisplayName("Should reject a token once another node's security change is read back")
+    void testStateless_RereadsVersionAfterTtl() throws Exception {
+        //a zero TTL reads the version on every request, as if the entry had just expired
+        JwtFilter jwtFilter = new JwtFilter(userDetailsService,
+                new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), true, 100),
+                new TokenVersionRegistry(userRepository, 0, 100), true);
+        when(userRepository.findTokenVersionById(7L)).thenReturn(Optional.of(0L), Optional.of(1L));
+        String token = jwtProvider.generateAccessToken(user);
+
+        assertNotNull(filter(jwtFilter, token));
+        assertNull(filter(jwtFilter, token));
+    }
+
+    @Test
+    @DisplayName("Should fall back to the user lookup for tokens without identity claims")
+    void testStateless_LegacyTokenLoadsUser() throws Exception {
+        when(userDetailsService.loadUserByUsername(anyString())).thenReturn(user);
+
+        assertNotNull(filter(statelessFilter, jwtProvider.generateAccessToken("johndoe")));
+
+        verify(userDetailsService).loadUserByUsername("johndoe");
+    }
+
+    private Authentication filter(JwtFilter jwtFilter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(SecurityConstants.AUTHORIZATION, SecurityConstants.BEARER + token);
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
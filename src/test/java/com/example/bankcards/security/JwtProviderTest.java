@@ -0,0 +1,47 @@
+package com.example.bankcards.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtProviderTest {
+
+    private final JwtProvider jwtProvider = new JwtProvider();
+
+    @Test
+    @DisplayName("Should verify a freshly issued token once and expose its claims")
+    void testVerify_ValidToken() {
+        String token = jwtProvider.generateAccessToken("johndoe");
+
+        Optional<VerifiedToken> verified = jwtProvider.verify(token);
+
+        assertTrue(verified.isPresent());
+        assertEquals("johndoe", verified.get().subject());
+        assertTrue(verified.get().expiresAt().isAfter(verified.get().issuedAt()));
+        assertThrows(UnsupportedOperationException.class, () -> verified.get().claims().put("sub", "other"));
+    }
+
+    @Test
+    @DisplayName("Should return empty for a tampered token")
+    void testVerify_TamperedToken() {
+        String token = jwtProvider.generateAccessToken("johndoe");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        assertTrue(jwtProvider.verify(tampered).isEmpty());
+        assertTrue(jwtProvider.verify("not-a-jwt").isEmpty());
+        assertTrue(jwtProvider.verify(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return empty for an expired token")
+    void testVerify_ExpiredToken() {
+        String token = jwtProvider.buildToken(new HashMap<>(), "johndoe", -60_000L);
+
+        assertTrue(jwtProvider.verify(token).isEmpty());
+        assertFalse(jwtProvider.validateToken(token, "johndoe"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerifiedTokenCacheTest {
+
+    @Spy
+    private JwtProvider jwtProvider;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtProvider, new SimpleMeterRegistry(), true, 100);
+    }
+
+    @Test
+    @DisplayName("Should verify a reused token only once")
+    void testVerify_CachesVerifiedToken() {
+        String token = jwtProvider.generateAccessToken("johndoe");
+
+        assertEquals("johndoe", verifiedTokenCache.verify(token).orElseThrow().subject());
+        assertEquals("johndoe", verifiedTokenCache.verify(token).orElseThrow().subject());
+        assertEquals("johndoe", verifiedTokenCache.verify(token).orElseThrow().subject());
+
+        verify(jwtProvider, times(1)).verify(token);
+        assertTrue(verifiedTokenCache.hitRate() > 0.5);
+    }
+
+    @Test
+    @DisplayName("Should not cache invalid or expired tokens")
+    void testVerify_InvalidTokenNotCached() {
+        String expired = jwtProvider.buildToken(new HashMap<>(), "johndoe", -60_000L);
+
+        assertTrue(verifiedTokenCache.verify(expired).isEmpty());
+        assertTrue(verifiedTokenCache.verify(expired).isEmpty());
+
+        verify(jwtProvider, times(2)).verify(expired);
+    }
+
+    @Test
+    @DisplayName("Should drop all cached tokens of a changed user")
+    void testOnUserSecurityChanged_DropsUserTokens() {
+        String first = jwtProvider.generateAccessToken("johndoe");
+        String second = jwtProvider.buildToken(new HashMap<>(), "johndoe", 60_000L);
+        String other = jwtProvider.generateAccessToken("janedoe");
+        verifiedTokenCache.verify(first);
+        verifiedTokenCache.verify(second);
+        verifiedTokenCache.verify(other);
+
+        verifiedTokenCache.onUserSecurityChanged(new UserSecurityChangedEvent(1L, "johndoe", 1L));
+        verifiedTokenCache.verify(first);
+        verifiedTokenCache.verify(second);
+        verifiedTokenCache.verify(other);
+
+        verify(jwtProvider, times(2)).verify(first);
+        verify(jwtProvider, times(2)).verify(second);
+        verify(jwtProvider, times(1)).verify(other);
+    }
+}
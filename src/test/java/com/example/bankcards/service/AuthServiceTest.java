@@ -10,7 +10,9 @@ import com.example.bankcards.entity.enums.UserStatus;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.UserSecurityChangedEvent;
 import com.example.bankcards.service.impl.AuthServiceImpl;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,6 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -58,6 +61,9 @@ class AuthServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -81,6 +87,12 @@ class AuthServiceTest {
         SecurityContextHolder.setContext(securityContext);
     }
 
+    //the mocked context would otherwise leak into the Spring tests run later on this thread
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     // ============= LOGIN TESTS =============
 
     @Test
@@ -94,7 +106,7 @@ class AuthServiceTest {
         when(userDetailsService.loadUserByUsername("johndoe")).thenReturn(testUser);
         when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
                 .thenReturn(authentication);
-        when(jwtProvider.generateAccessToken("johndoe")).thenReturn("token123");
+        when(jwtProvider.generateAccessToken(testUser)).thenReturn("token123");
         when(jwtProvider.getAccessTokenExpiredDate("token123")).thenReturn(new Date());
         when(userMapper.toDto(testUser)).thenReturn(new UserDto(
                 testUser.getId(),
@@ -197,6 +209,8 @@ class AuthServiceTest {
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("PASSWORD SUCCESSFULLY UPDATED", response.getMessage());
         verify(userRepository).save(testUser);
+        assertEquals(1L, testUser.getTokenVersion());
+        verify(eventPublisher).publishEvent(any(UserSecurityChangedEvent.class));
     }
 
     @Test
@@ -0,0 +1,89 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.job.CardBalanceSnapshotJob;
+import com.example.bankcards.repository.CardBalanceSnapshotRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.impl.CardBalanceHistory;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.EncryptionService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBalanceHistoryTest {
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardBalanceHistory cardBalanceHistory;
+
+    @Autowired
+    private CardBalanceSnapshotJob cardBalanceSnapshotJob;
+
+    @Autowired
+    private CardBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @Test
+    @DisplayName("Balances at past moments match with and without a snapshot")
+    void testBalanceAt_SnapshotAndReplay() throws Exception {
+        String from = createCard();
+        String to = createCard();
+        Long fromId = cardRepository.findByNumberHash(encryptionService.blindIndex(from)).orElseThrow().getId();
+
+        cardService.fillCard(from, new BigDecimal("100.00"));
+        LocalDateTime afterFill = tick();
+        cardService.transferMoneyBetweenCards(from, to, new BigDecimal("30.00"));
+        LocalDateTime afterTransfer = tick();
+
+        //before any snapshot the current balance is walked back
+        assertEquals(0, new BigDecimal("100.00").compareTo(cardBalanceHistory.balanceAt(fromId, afterFill)));
+        assertEquals(0, new BigDecimal("70.00").compareTo(cardBalanceHistory.balanceAt(fromId, afterTransfer)));
+
+        assertTrue(cardBalanceSnapshotJob.takeSnapshots(afterTransfer) >= 2);
+        assertEquals(0, cardBalanceSnapshotJob.takeSnapshots(afterTransfer), "snapshots are written once per checkpoint");
+        assertEquals(0, new BigDecimal("70.00").compareTo(snapshotRepository
+                .findFirstByCardIdAndAsOfLessThanEqualOrderByAsOfDesc(fromId, afterTransfer).orElseThrow().getBalance()));
+
+        cardService.fillCard(from, new BigDecimal("5.00"));
+        LocalDateTime afterSecondFill = tick();
+        cardService.transferMoneyBetweenCards(to, from, new BigDecimal("10.00"));
+
+        //after the snapshot only the legs past the checkpoint are replayed
+        assertEquals(0, new BigDecimal("75.00").compareTo(cardBalanceHistory.balanceAt(fromId, afterSecondFill)));
+        assertEquals(0, new BigDecimal("85.00").compareTo(cardBalanceHistory.balanceAt(fromId, tick())));
+        assertEquals(0, new BigDecimal("70.00").compareTo(cardBalanceHistory.balanceAt(fromId, afterTransfer)));
+    }
+
+    //ledger timestamps come from the clock, so checkpoints are taken between writes
+    private static LocalDateTime tick() throws InterruptedException {
+        Thread.sleep(5);
+        LocalDateTime now = LocalDateTime.now();
+        Thread.sleep(5);
+        return now;
+    }
+
+    private String createCard() {
+        String number = testCards.number();
+        cardRepository.save(testCards.card(testCards.owner("History Owner"), number).build());
+        return number;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.CardBalanceShard;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardBalanceShardRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardBalanceShardTest {
+
+    private static final int SOURCES = 8;
+    private static final int SHARDS = 8;
+    private static final int THREADS = 16;
+    private static final int CREDITS_PER_THREAD = 40;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardBalanceShardRepository shardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Credits spread over shards, debits consolidate them and the ledger still explains every card")
+    void testShardedCard_CreditsAndConsolidation() throws Exception {
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(SOURCES + 1, numbers, ids);
+        String hot = numbers.get(SOURCES);
+        Long hotId = ids.get(SOURCES);
+        assertEquals(HttpStatus.OK, cardService.setBalanceShards(hotId, SHARDS).getStatus());
+        assertEquals(SHARDS, shardsOf(hotId).size());
+
+        AtomicInteger credited = new AtomicInteger();
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextBoolean()) {
+                if (cardService.fillCard(hot, BigDecimal.ONE).getStatus() == HttpStatus.OK) credited.incrementAndGet();
+            } else {
+                String from = numbers.get(random.nextInt(SOURCES));
+                if (cardService.transferMoneyBetweenCards(from, hot, BigDecimal.ONE).getStatus() == HttpStatus.OK) {
+                    credited.incrementAndGet();
+                }
+            }
+        });
+
+        BigDecimal hotBalance = BigDecimal.valueOf(credited.get()).add(INITIAL_BALANCE);
+        assertEquals(0, hotBalance.compareTo((BigDecimal) cardService.getBalance(hotId).getData()));
+        //the card row still holds only the initial balance, every credit sits on a shard
+        assertEquals(Money.of(INITIAL_BALANCE), cardRepository.findById(hotId).orElseThrow().getBalance());
+        assertTrue(shardsOf(hotId).stream().filter(s -> s.getBalance().isPositive()).count() > 1);
+
+        //more than the card row holds: the shards are pulled in before the debit
+        BigDecimal out = INITIAL_BALANCE.add(BigDecimal.TEN);
+        assertEquals(HttpStatus.OK, cardService.transferMoneyBetweenCards(hot, numbers.get(0), out).getStatus());
+        assertEquals(0, hotBalance.subtract(out).compareTo((BigDecimal) cardService.getBalance(hotId).getData()));
+        assertTrue(shardsOf(hotId).stream().noneMatch(s -> s.getBalance().isPositive()));
+        assertLedgerExplainsBalances(ids);
+
+        assertEquals(HttpStatus.OK, cardService.setBalanceShards(hotId, 0).getStatus());
+        assertTrue(shardsOf(hotId).isEmpty());
+        assertEquals(0, hotBalance.subtract(out).compareTo((BigDecimal) cardService.getBalance(hotId).getData()));
+        assertLedgerExplainsBalances(ids);
+    }
+
+    @Test
+    @DisplayName("Concurrent fills into one card keep its balance before and after it is sharded")
+    void testShardedCard_ConcurrentFills() throws Exception {
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(1, numbers, ids);
+        Runnable fill = () -> assertEquals(HttpStatus.OK, cardService.fillCard(numbers.get(0), BigDecimal.ONE).getStatus());
+
+        runConcurrently(fill);
+        assertEquals(HttpStatus.OK, cardService.setBalanceShards(ids.get(0), SHARDS).getStatus());
+        runConcurrently(fill);
+
+        BigDecimal expected = INITIAL_BALANCE.add(BigDecimal.valueOf(2L * THREADS * CREDITS_PER_THREAD));
+        assertEquals(0, expected.compareTo((BigDecimal) cardService.getBalance(ids.get(0)).getData()));
+        assertTrue(shardsOf(ids.get(0)).stream().noneMatch(s -> s.getBalance().signum() < 0));
+        assertLedgerExplainsBalances(ids);
+    }
+
+    private void runConcurrently(Runnable credit) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < CREDITS_PER_THREAD; i++) {
+                    credit.run();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+    }
+
+    private List<CardBalanceShard> shardsOf(Long cardId) {
+        return shardRepository.findAll().stream().filter(s -> s.getCardId().equals(cardId)).toList();
+    }
+
+    private void createCards(int count, List<String> numbers, List<Long> ids) {
+        User owner = testCards.owner("Shard Owner");
+        for (int i = 0; i < count; i++) {
+            String number = testCards.number();
+            ids.add(cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build()).getId());
+            numbers.add(number);
+        }
+    }
+
+    private void assertLedgerExplainsBalances(List<Long> ids) {
+        for (Long id : ids) {
+            BigDecimal legs = transactionRepository.sumAmountByCardIdBefore(id, LocalDateTime.now().plusDays(1));
+            assertEquals(0, INITIAL_BALANCE.add(legs).compareTo((BigDecimal) cardService.getBalance(id).getData()),
+                    "Ledger does not explain card " + id);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.filter.CardFilter;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.support.TestCards;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CardKeysetPaginationTest {
+
+    private static final int CARDS = 25;
+    private static final int PAGE_SIZE = 7;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Following the cursor returns every matching card once, newest first")
+    @SuppressWarnings("unchecked")
+    void testGetAllCards_CursorWalksAllPages() {
+        String tag = UUID.randomUUID().toString();
+        List<Long> ids = createCards(tag);
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            ApiResponse response = cardService.getAllCards(filter(tag), cursor, PAGE_SIZE, pages == 0);
+            assertEquals(HttpStatus.OK, response.getStatus());
+            if (pages == 0) {
+                assertEquals(CARDS, response.getElements());
+                assertEquals(4, response.getPages());
+            } else {
+                assertNull(response.getElements());
+            }
+            for (CardDto card : (List<CardDto>) response.getData()) {
+                seen.add(card.getId());
+            }
+            cursor = response.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(ids.stream().sorted(Comparator.reverseOrder()).toList(), seen);
+    }
+
+    @Test
+    @DisplayName("A cursor that was not issued by the service is rejected")
+    void testGetAllCards_InvalidCursor() {
+        ApiResponse response = cardService.getAllCards(filter("any"), "not a cursor!", PAGE_SIZE, false);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+
+        response = cardService.getAllCards(filter("any"), "", 0, false);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+    }
+
+    private CardFilter filter(String keyword) {
+        CardFilter filter = new CardFilter();
+        filter.setKeyword(keyword);
+        filter.setDeleted(false);
+        return filter;
+    }
+
+    private List<Long> createCards(String tag) {
+        User owner = testCards.owner("Keyset " + tag);
+        List<Card> cards = new ArrayList<>(CARDS);
+        for (int i = 0; i < CARDS; i++) {
+            cards.add(testCards.card(owner).build());
+        }
+        return cardRepository.saveAll(cards).stream().map(Card::getId).toList();
+    }
+}
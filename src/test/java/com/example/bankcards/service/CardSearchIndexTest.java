@@ -0,0 +1,150 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.filter.CardFilter;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.impl.CardSearchIndex;
+import com.example.bankcards.support.TestCards;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "bank.card.search-index.enabled=true")
+@ActiveProfiles("test")
+class CardSearchIndexTest {
+
+    @Autowired
+    private CardSearchIndex cardSearchIndex;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("The index finds the same cards as the database for every keyword shape")
+    void testSearch_MatchesDatabase() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        List<Card> cards = createCards("Index " + tag, 12);
+        String lastFour = digits(cards.get(0));
+
+        assertTrue(cardSearchIndex.isReady());
+        for (String keyword : List.of(tag, "INDEX " + tag.toUpperCase(), lastFour, lastFour.substring(1), "x", "")) {
+            for (CardStatus status : Arrays.asList(null, CardStatus.ACTIVE, CardStatus.BLOCKED)) {
+                CardFilter filter = filter(keyword, status, false);
+                List<Long> expected = cardRepository.findAll(filter, Sort.by(Sort.Direction.DESC, "id"))
+                        .stream().map(Card::getId).toList();
+                List<Long> found = Arrays.stream(cardSearchIndex.search(keyword, status, false)).boxed().toList();
+                assertEquals(expected, found, "keyword '" + keyword + "', status " + status);
+            }
+        }
+        assertTrue(cardSearchIndex.bytesPerCard() > 0);
+    }
+
+    @Test
+    @DisplayName("Renames, status changes and soft deletes are searchable once they commit")
+    void testSearch_FollowsCardWrites() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        Card card = createCards("Before " + tag, 1).get(0);
+
+        CardDto.UpdateCardDto rename = new CardDto.UpdateCardDto();
+        rename.setCardHolder("After " + tag);
+        rename.setStatus(CardStatus.BLOCKED);
+        cardService.updateCard(card.getId(), rename);
+
+        assertEquals(0, cardSearchIndex.search("before " + tag, null, false).length);
+        assertArrayEquals(new long[]{card.getId()}, cardSearchIndex.search("after " + tag, CardStatus.BLOCKED, false));
+        assertEquals(0, cardSearchIndex.search("after " + tag, CardStatus.ACTIVE, false).length);
+
+        cardService.deleteCard(card.getId());
+
+        assertEquals(0, cardSearchIndex.search(tag, null, false).length);
+        assertArrayEquals(new long[]{card.getId()}, cardSearchIndex.search(tag, null, true));
+    }
+
+    @Test
+    @DisplayName("Rows deleted behind the listener's back are dropped by the reconcile")
+    void testReconcile_DropsHardDeletedCards() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        List<Card> cards = createCards("Gone " + tag, 3);
+        jdbcTemplate.update("delete from cards where id = ?", cards.get(0).getId());
+        assertEquals(3, cardSearchIndex.search(tag, null, false).length);
+
+        cardSearchIndex.reconcile();
+
+        assertArrayEquals(new long[]{cards.get(2).getId(), cards.get(1).getId()}, cardSearchIndex.search(tag, null, false));
+    }
+
+    @Test
+    @DisplayName("get-all-cards pages through index matches newest first, in both pagination modes")
+    @SuppressWarnings("unchecked")
+    void testGetAllCards_PagesFromIndex() {
+        String tag = UUID.randomUUID().toString().substring(0, 8);
+        List<Long> ids = new ArrayList<>(createCards("Paged " + tag, 9).stream().map(Card::getId).toList());
+        ids.sort(Comparator.reverseOrder());
+
+        ApiResponse response = cardService.getAllCards(filter(tag, null, false),
+                PageRequest.of(1, 4, Sort.by(Sort.Direction.DESC, "id")));
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertEquals(9L, response.getElements());
+        assertEquals(3, response.getPages());
+        assertEquals(ids.subList(4, 8), ((List<CardDto>) response.getData()).stream().map(CardDto::getId).toList());
+
+        response = cardService.getAllCards(filter(tag, null, false), "", 5, true);
+        assertEquals(9L, response.getElements());
+        assertEquals(ids.subList(0, 5), ((List<CardDto>) response.getData()).stream().map(CardDto::getId).toList());
+        response = cardService.getAllCards(filter(tag, null, false), response.getNextCursor(), 5, false);
+        assertEquals(ids.subList(5, 9), ((List<CardDto>) response.getData()).stream().map(CardDto::getId).toList());
+        assertNull(response.getNextCursor());
+    }
+
+    private CardFilter filter(String keyword, CardStatus status, boolean deleted) {
+        CardFilter filter = new CardFilter();
+        filter.setKeyword(keyword);
+        filter.setStatus(status);
+        filter.setDeleted(deleted);
+        return filter;
+    }
+
+    private String digits(Card card) {
+        String masked = card.getLastFourDigits();
+        return masked.substring(masked.length() - 4);
+    }
+
+    //every third card is blocked
+    private List<Card> createCards(String ownerName, int count) {
+        User owner = testCards.owner(ownerName);
+        List<Card> cards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cards.add(testCards.card(owner)
+                    .status(i % 3 == 2 ? CardStatus.BLOCKED : CardStatus.ACTIVE)
+                    .build());
+        }
+        return cardRepository.saveAll(cards);
+    }
+}
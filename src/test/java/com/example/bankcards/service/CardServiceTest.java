@@ -18,23 +18,32 @@ import com.example.bankcards.filter.CardFilter;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.service.impl.CardSearchIndex;
 import com.example.bankcards.service.impl.CardServiceImpl;
+import com.example.bankcards.service.impl.ShardedTransferExecutor;
+import com.example.bankcards.service.impl.TransferNettingStage;
 import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.TransactionRetryTemplate;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -49,6 +58,10 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class CardServiceTest {
 
+    private static final byte[] NUMBER_HASH = {1, 2, 3};
+    private static final byte[] HASH_FROM = {4, 5, 6};
+    private static final byte[] HASH_TO = {7, 8, 9};
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -67,6 +80,24 @@ class CardServiceTest {
     @Mock
     private CardMapper cardMapper;
 
+    @Spy
+    private TransactionRetryTemplate transactionRetryTemplate =
+            new TransactionRetryTemplate(TransactionOperations.withoutTransaction(), 1, 0, 0);
+
+    //disabled unless a test stubs it: money operations take the lock-based path
+    @Mock
+    private ShardedTransferExecutor transferExecutor;
+
+    @Mock
+    private TransferNettingStage transferNetting;
+
+    //not ready unless a test stubs it: card lists are read from the repository
+    @Mock
+    private CardSearchIndex cardSearchIndex;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -103,7 +134,7 @@ class CardServiceTest {
                 .ownerName("John Doe")
                 .status(CardStatus.ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(5))
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.of(BigDecimal.valueOf(1000)))
                 .build();
         testCard.setId(1L);
 
@@ -114,7 +145,7 @@ class CardServiceTest {
                 .ownerName("John Doe")
                 .status(CardStatus.ACTIVE)
                 .expiryDate(LocalDate.now().plusYears(5))
-                .balance(BigDecimal.valueOf(500))
+                .balance(Money.of(BigDecimal.valueOf(500)))
                 .build();
         testCard2.setId(2L);
 
@@ -132,6 +163,12 @@ class CardServiceTest {
         SecurityContextHolder.setContext(securityContext);
     }
 
+    //the mocked context would otherwise leak into the Spring tests run later on this thread
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     // ============= CREATE CARD TESTS =============
 
     @Test
@@ -146,7 +183,8 @@ class CardServiceTest {
         when(encryptionService.encrypt(generatedCardNumber)).thenReturn(encryptedNumber);
         when(encryptionService.maskNumber(generatedCardNumber)).thenReturn(maskedNumber);
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(cardRepository.existsByEncryptedNumber(encryptedNumber)).thenReturn(false);
+        when(encryptionService.blindIndex(generatedCardNumber)).thenReturn(NUMBER_HASH);
+        when(cardRepository.existsByNumberHash(NUMBER_HASH)).thenReturn(false);
         when(cardMapper.toEntity(createCardDto, encryptedNumber, maskedNumber, testUser)).thenReturn(testCard);
         when(cardRepository.save(testCard)).thenReturn(testCard);
         when(cardMapper.toDto(testCard)).thenReturn(expectedCardDto);
@@ -170,7 +208,8 @@ class CardServiceTest {
         when(encryptionService.generateCardNumber()).thenReturn(generatedCardNumber);
         when(encryptionService.encrypt(generatedCardNumber)).thenReturn(encryptedNumber);
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
-        when(cardRepository.existsByEncryptedNumber(encryptedNumber)).thenReturn(true);
+        when(encryptionService.blindIndex(generatedCardNumber)).thenReturn(NUMBER_HASH);
+        when(cardRepository.existsByNumberHash(NUMBER_HASH)).thenReturn(true);
 
         // When
         ApiResponse response = cardService.addCard(createCardDto);
@@ -228,16 +267,15 @@ class CardServiceTest {
         // Given
         String fromCardNumber = "1111222233334444";
         String toCardNumber = "5555666677778888";
-        String encryptedFrom = "ENCRYPTED_FROM";
-        String encryptedTo = "ENCRYPTED_TO";
         BigDecimal transferAmount = BigDecimal.valueOf(100);
 
-        when(encryptionService.encrypt(fromCardNumber)).thenReturn(encryptedFrom);
-        when(encryptionService.encrypt(toCardNumber)).thenReturn(encryptedTo);
-        when(cardRepository.findByEncryptedNumber(encryptedFrom)).thenReturn(Optional.of(testCard));
-        when(cardRepository.findByEncryptedNumber(encryptedTo)).thenReturn(Optional.of(testCard2));
+        when(encryptionService.blindIndex(fromCardNumber)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(toCardNumber)).thenReturn(HASH_TO);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testCard2));
         when(cardRepository.saveAll(anyList())).thenReturn(Arrays.asList(testCard, testCard2));
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(new Transaction());
 
         // When
         ApiResponse response = cardService.transferMoneyBetweenCards(fromCardNumber, toCardNumber, transferAmount);
@@ -245,9 +283,10 @@ class CardServiceTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatus());
         assertEquals("Money has successfully transferred!", response.getMessage());
-        assertEquals(BigDecimal.valueOf(900), testCard.getBalance()); // 1000 - 100
-        assertEquals(BigDecimal.valueOf(600), testCard2.getBalance()); // 500 + 100
-        verify(transactionRepository).save(any(Transaction.class));
+        assertEquals(Money.of(BigDecimal.valueOf(900)), testCard.getBalance()); // 1000 - 100
+        assertEquals(Money.of(BigDecimal.valueOf(600)), testCard2.getBalance()); // 500 + 100
+        verify(transactionRepository).saveAll(argThat((List<Transaction> legs) -> legs.size() == 2
+                && legs.get(0).getAmount().plus(legs.get(1).getAmount()).signum() == 0));
     }
 
     @Test
@@ -256,14 +295,14 @@ class CardServiceTest {
         // Given
         String fromCardNumber = "1111222233334444";
         String toCardNumber = "5555666677778888";
-        String encryptedFrom = "ENCRYPTED_FROM";
-        String encryptedTo = "ENCRYPTED_TO";
         BigDecimal transferAmount = BigDecimal.valueOf(2000); // More than balance
 
-        when(encryptionService.encrypt(fromCardNumber)).thenReturn(encryptedFrom);
-        when(encryptionService.encrypt(toCardNumber)).thenReturn(encryptedTo);
-        when(cardRepository.findByEncryptedNumber(encryptedFrom)).thenReturn(Optional.of(testCard));
-        when(cardRepository.findByEncryptedNumber(encryptedTo)).thenReturn(Optional.of(testCard2));
+        when(encryptionService.blindIndex(fromCardNumber)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(toCardNumber)).thenReturn(HASH_TO);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testCard2));
 
         // When
         ApiResponse response = cardService.transferMoneyBetweenCards(fromCardNumber, toCardNumber, transferAmount);
@@ -279,11 +318,11 @@ class CardServiceTest {
     void testTransferMoney_SameCard() {
         // Given
         String cardNumber = "1111222233334444";
-        String encrypted = "ENCRYPTED_CARD";
         BigDecimal transferAmount = BigDecimal.valueOf(100);
 
-        when(encryptionService.encrypt(cardNumber)).thenReturn(encrypted);
-        when(cardRepository.findByEncryptedNumber(encrypted)).thenReturn(Optional.of(testCard));
+        when(encryptionService.blindIndex(cardNumber)).thenReturn(HASH_FROM);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_FROM)).thenReturn(Optional.of(creditTarget(1L)));
 
         // When & Then
         assertThrows(IllegalArgumentException.class,
@@ -296,20 +335,21 @@ class CardServiceTest {
         // Given
         String fromCardNumber = "1111222233334444";
         String toCardNumber = "5555666677778888";
-        String encryptedFrom = "ENCRYPTED_FROM";
-        String encryptedTo = "ENCRYPTED_TO";
         BigDecimal transferAmount = BigDecimal.valueOf(100);
 
         Card blockedCard = Card.builder()
 //                .id(1L)
                 .status(CardStatus.BLOCKED)
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.of(BigDecimal.valueOf(1000)))
                 .build();
+        blockedCard.setId(1L);
 
-        when(encryptionService.encrypt(fromCardNumber)).thenReturn(encryptedFrom);
-        when(encryptionService.encrypt(toCardNumber)).thenReturn(encryptedTo);
-        when(cardRepository.findByEncryptedNumber(encryptedFrom)).thenReturn(Optional.of(blockedCard));
-        when(cardRepository.findByEncryptedNumber(encryptedTo)).thenReturn(Optional.of(testCard2));
+        when(encryptionService.blindIndex(fromCardNumber)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(toCardNumber)).thenReturn(HASH_TO);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(blockedCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testCard2));
 
         // When & Then
         assertThrows(CardBlockedException.class,
@@ -322,26 +362,55 @@ class CardServiceTest {
         // Given
         String fromCardNumber = "1111222233334444";
         String toCardNumber = "5555666677778888";
-        String encryptedFrom = "ENCRYPTED_FROM";
-        String encryptedTo = "ENCRYPTED_TO";
         BigDecimal transferAmount = BigDecimal.valueOf(100);
 
         Card expiredCard = Card.builder()
 //                .id(1L)
                 .status(CardStatus.EXPIRED)
                 .expiryDate(LocalDate.now().minusDays(1))
-                .balance(BigDecimal.valueOf(1000))
+                .balance(Money.of(BigDecimal.valueOf(1000)))
                 .build();
         expiredCard.setId(1L);
 
-        when(encryptionService.encrypt(fromCardNumber)).thenReturn(encryptedFrom);
-        when(encryptionService.encrypt(toCardNumber)).thenReturn(encryptedTo);
-        when(cardRepository.findByEncryptedNumber(encryptedFrom)).thenReturn(Optional.of(expiredCard));
-        when(cardRepository.findByEncryptedNumber(encryptedTo)).thenReturn(Optional.of(testCard2));
+        when(encryptionService.blindIndex(fromCardNumber)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(toCardNumber)).thenReturn(HASH_TO);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(expiredCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testCard2));
+
+        // When & Then
+        assertThrows(CardExpiredException.class,
+                () -> cardService.transferMoneyBetweenCards(fromCardNumber, toCardNumber, transferAmount));
+    }
+
+    @Test
+    @DisplayName("Should reject a card past its expiry date without writing its status")
+    void testTransferMoney_ExpiryDatePassed_NoWrite() {
+        // Given
+        String fromCardNumber = "1111222233334444";
+        String toCardNumber = "5555666677778888";
+        BigDecimal transferAmount = BigDecimal.valueOf(100);
+
+        Card lapsedCard = Card.builder()
+                .status(CardStatus.ACTIVE)
+                .expiryDate(LocalDate.now().minusDays(1))
+                .balance(Money.of(BigDecimal.valueOf(1000)))
+                .build();
+        lapsedCard.setId(1L);
+
+        when(encryptionService.blindIndex(fromCardNumber)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(toCardNumber)).thenReturn(HASH_TO);
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(lapsedCard));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(testCard2));
 
         // When & Then
         assertThrows(CardExpiredException.class,
                 () -> cardService.transferMoneyBetweenCards(fromCardNumber, toCardNumber, transferAmount));
+        assertEquals(CardStatus.ACTIVE, lapsedCard.getStatus());
+        verify(cardRepository, never()).save(any());
     }
 
     @Test
@@ -360,8 +429,8 @@ class CardServiceTest {
         assertEquals("Card cannot be negative or zero", response.getMessage());
 
         // Verify that encryption methods are not called for negative amounts
-        verify(encryptionService, never()).encrypt(anyString());
-        verify(cardRepository, never()).findByEncryptedNumber(anyString());
+        verify(encryptionService, never()).blindIndex(anyString());
+        verify(cardRepository, never()).findIdByNumberHash(any());
     }
 
     // ============= FILL CARD TESTS =============
@@ -371,13 +440,12 @@ class CardServiceTest {
     void testFillCard_Success() {
         // Given
         String cardNumber = "1111222233334444";
-        String encrypted = "ENCRYPTED_CARD";
         BigDecimal fillAmount = BigDecimal.valueOf(500);
 
-        when(encryptionService.encrypt(cardNumber)).thenReturn(encrypted);
-        when(cardRepository.findByEncryptedNumber(encrypted)).thenReturn(Optional.of(testCard));
+        when(encryptionService.blindIndex(cardNumber)).thenReturn(NUMBER_HASH);
+        when(cardRepository.findCreditTargetByNumberHash(NUMBER_HASH)).thenReturn(Optional.of(creditTarget(1L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testCard));
         when(cardRepository.save(testCard)).thenReturn(testCard);
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(new Transaction());
 
         // When
         ApiResponse response = cardService.fillCard(cardNumber, fillAmount);
@@ -385,8 +453,9 @@ class CardServiceTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatus());
         assertTrue(response.getMessage().contains("Card successfully filled with"));
-        assertEquals(BigDecimal.valueOf(1500), testCard.getBalance()); // 1000 + 500
-        verify(transactionRepository).save(any(Transaction.class));
+        assertEquals(Money.of(BigDecimal.valueOf(1500)), testCard.getBalance()); // 1000 + 500
+        verify(transactionRepository).saveAll(argThat((List<Transaction> legs) -> legs.size() == 2
+                && legs.get(0).getAmount().plus(legs.get(1).getAmount()).signum() == 0));
     }
 
     @Test
@@ -404,6 +473,26 @@ class CardServiceTest {
         assertEquals("Card cannot be negative or zero", response.getMessage());
     }
 
+    @Test
+    @DisplayName("Should return the stored response for a replayed Idempotency-Key without touching cards")
+    void testFillCard_IdempotentReplay() {
+        // Given
+        String cardNumber = "1111222233334444";
+        ApiResponse stored = ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message("Card successfully filled with 500")
+                .build();
+        when(encryptionService.blindIndex(cardNumber)).thenReturn(NUMBER_HASH);
+        when(idempotencyService.execute(eq("retry-1"), eq("fill-card"), anyString(), any())).thenReturn(stored);
+
+        // When
+        ApiResponse response = cardService.fillCard(cardNumber, BigDecimal.valueOf(500), "retry-1");
+
+        // Then
+        assertSame(stored, response);
+        verifyNoInteractions(cardRepository, transactionRepository);
+    }
+
     // ============= GET MY CARDS TESTS =============
 
     @Test
@@ -412,8 +501,8 @@ class CardServiceTest {
         // Given
         when(securityContext.getAuthentication()).thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(testUser);
-        when(cardRepository.findAllByOwnerId(testUser.getId())).thenReturn(Arrays.asList(testCard, testCard2));
-        when(cardMapper.toDto(anyList())).thenReturn(Arrays.asList(expectedCardDto));
+        when(cardRepository.findRows(any(), eq(Sort.unsorted()))).thenReturn(Arrays.asList(row(testCard), row(testCard2)));
+        when(cardMapper.toRowDto(anyList())).thenReturn(Arrays.asList(expectedCardDto));
 
         // When
         ApiResponse response = cardService.getMyCards();
@@ -445,7 +534,7 @@ class CardServiceTest {
         // Given
         when(securityContext.getAuthentication()).thenReturn(authentication);
         when(authentication.getPrincipal()).thenReturn(testUser);
-        when(cardRepository.findAllByOwnerId(testUser.getId())).thenReturn(Collections.emptyList());
+        when(cardRepository.findRows(any(), eq(Sort.unsorted()))).thenReturn(Collections.emptyList());
 
         // When
         ApiResponse response = cardService.getMyCards();
@@ -482,10 +571,10 @@ class CardServiceTest {
         // Given
         CardFilter filter = new CardFilter();
         Pageable pageable = PageRequest.of(0, 10);
-        Page<Card> cardPage = new PageImpl<>(Arrays.asList(testCard, testCard2), pageable, 2);
+        Page<CardRepository.CardRow> cardPage = new PageImpl<>(Arrays.asList(row(testCard), row(testCard2)), pageable, 2);
 
-        when(cardRepository.findAll(filter, pageable)).thenReturn(cardPage);
-        when(cardMapper.toDto(anyList())).thenReturn(Arrays.asList(expectedCardDto));
+        when(cardRepository.findRows(filter, pageable)).thenReturn(cardPage);
+        when(cardMapper.toRowDto(anyList())).thenReturn(Arrays.asList(expectedCardDto));
 
         // When
         ApiResponse response = cardService.getAllCards(filter, pageable);
@@ -510,7 +599,7 @@ class CardServiceTest {
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatus());
-        assertEquals(testCard.getBalance(), response.getData());
+        assertEquals(testCard.getBalance().toBigDecimal(), response.getData());
     }
 
     // ============= DELETE CARD TESTS =============
@@ -550,4 +639,24 @@ class CardServiceTest {
         assertTrue(response.getMessage().contains("updated successfully"));
         verify(cardMapper).toUpdate(updateDto, testCard);
     }
-}
\ No newline at end of file
+
+    private static CardRepository.CardRow row(Card card) {
+        return new CardRepository.CardRow(card.getId(), card.getLastFourDigits(), card.getOwnerName(),
+                card.getExpiryDate(), card.getStatus(), card.getBalance(), null, card.getHeldAmount(),
+                card.getCreatedAt(), card.getUpdatedAt(), card.getCreatedBy(), card.getUpdatedBy(), card.getDeleted());
+    }
+
+    private static CardRepository.CreditTarget creditTarget(Long id) {
+        return new CardRepository.CreditTarget() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getBalanceShards() {
+                return 0;
+            }
+        };
+    }
+}
@@ -8,13 +8,19 @@ import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.service.impl.CardServiceImpl;
+import com.example.bankcards.service.impl.ShardedTransferExecutor;
+import com.example.bankcards.service.impl.TransferNettingStage;
 import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.TransactionRetryTemplate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -37,6 +43,17 @@ class CardServiceTransactionTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Spy
+    private TransactionRetryTemplate transactionRetryTemplate =
+            new TransactionRetryTemplate(TransactionOperations.withoutTransaction(), 1, 0, 0);
+
+    //disabled unless a test stubs it: money operations take the lock-based path
+    @Mock
+    private ShardedTransferExecutor transferExecutor;
+
+    @Mock
+    private TransferNettingStage transferNetting;
+
     private Card testCard;
 
     @BeforeEach
@@ -48,7 +65,7 @@ class CardServiceTransactionTest {
 
         testCard = new Card();
         testCard.setId(1L);
-        testCard.setBalance(BigDecimal.ZERO);
+        testCard.setBalance(Money.ZERO);
         testCard.setStatus(CardStatus.ACTIVE);
         testCard.setOwner(user);
         testCard.setEncryptedNumber("encrypted123");
@@ -61,15 +78,33 @@ class CardServiceTransactionTest {
         String cardNumber = "1234567890123456";
         BigDecimal amount = new BigDecimal("100");
 
-        when(encryptionService.encrypt(cardNumber)).thenReturn("encrypted123");
-        when(cardRepository.findByEncryptedNumber("encrypted123")).thenReturn(Optional.of(testCard));
+        byte[] numberHash = {1, 2, 3, 4};
+        when(encryptionService.blindIndex(cardNumber)).thenReturn(numberHash);
+        when(cardRepository.findCreditTargetByNumberHash(numberHash)).thenReturn(Optional.of(creditTarget(1L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testCard));
         when(cardRepository.save(any(Card.class))).thenReturn(testCard);
-        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
         var response = cardService.fillCard(cardNumber, amount);
 
         assertEquals("Card successfully filled with 100", response.getMessage());
-        assertEquals(BigDecimal.valueOf(100), testCard.getBalance());
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        assertEquals(Money.of(BigDecimal.valueOf(100)), testCard.getBalance());
+        verify(transactionRepository, times(1)).saveAll(argThat((List<Transaction> legs) -> legs.size() == 2
+                && legs.get(0).getCard() == null
+                && legs.get(1).getCard() == testCard
+                && legs.get(0).getAmount().plus(legs.get(1).getAmount()).signum() == 0));
+    }
+
+    private static CardRepository.CreditTarget creditTarget(Long id) {
+        return new CardRepository.CreditTarget() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getBalanceShards() {
+                return 0;
+            }
+        };
     }
 }
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.User;
@@ -8,16 +9,27 @@ import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
 import com.example.bankcards.repository.UserRepository;
 import com.example.bankcards.service.impl.CardServiceImpl;
+import com.example.bankcards.service.impl.ShardedTransferExecutor;
+import com.example.bankcards.service.impl.TransferNettingStage;
 import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.RestConstants;
+import com.example.bankcards.util.TransactionRetryTemplate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.Mockito.*;
@@ -25,6 +37,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class CardServiceTransferTest {
 
+    private static final byte[] HASH_FROM = {1, 1, 1, 1};
+    private static final byte[] HASH_TO = {2, 2, 2, 2};
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -40,6 +55,17 @@ class CardServiceTransferTest {
     @Mock
     private EncryptionService encryptionService;
 
+    @Spy
+    private TransactionRetryTemplate transactionRetryTemplate =
+            new TransactionRetryTemplate(TransactionOperations.withoutTransaction(), 1, 0, 0);
+
+    //disabled unless a test stubs it: money operations take the lock-based path
+    @Mock
+    private ShardedTransferExecutor transferExecutor;
+
+    @Mock
+    private TransferNettingStage transferNetting;
+
     private Card cardFrom;
     private Card cardTo;
 
@@ -52,7 +78,7 @@ class CardServiceTransferTest {
 
         cardFrom = new Card();
         cardFrom.setId(1L);
-        cardFrom.setBalance(new BigDecimal("500"));
+        cardFrom.setBalance(Money.of(new BigDecimal("500")));
         cardFrom.setStatus(CardStatus.ACTIVE);
         cardFrom.setOwner(user);
         cardFrom.setEncryptedNumber("encryptedFrom");
@@ -62,7 +88,7 @@ class CardServiceTransferTest {
 
         cardTo = new Card();
         cardTo.setId(2L);
-        cardTo.setBalance(BigDecimal.ZERO);
+        cardTo.setBalance(Money.ZERO);
         cardTo.setStatus(CardStatus.ACTIVE);
         cardTo.setOwner(user);
         cardTo.setEncryptedNumber("encryptedTo");
@@ -76,22 +102,119 @@ class CardServiceTransferTest {
         String to = "2222";
         BigDecimal amount = new BigDecimal("100");
 
-        when(encryptionService.encrypt(from)).thenReturn("encryptedFrom");
-        when(encryptionService.encrypt(to)).thenReturn("encryptedTo");
+        when(encryptionService.blindIndex(from)).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex(to)).thenReturn(HASH_TO);
 
-        when(cardRepository.findByEncryptedNumber("encryptedFrom")).thenReturn(Optional.of(cardFrom));
-        when(cardRepository.findByEncryptedNumber("encryptedTo")).thenReturn(Optional.of(cardTo));
+        when(cardRepository.findIdByNumberHash(HASH_FROM)).thenReturn(Optional.of(1L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_TO)).thenReturn(Optional.of(creditTarget(2L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cardFrom));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(cardTo));
 
         when(cardRepository.saveAll(any())).thenReturn(null);
-        when(transactionRepository.save(any(Transaction.class))).thenAnswer(i -> i.getArguments()[0]);
 
         var response = cardService.transferMoneyBetweenCards(from, to, amount);
 
         assertEquals("Money has successfully transferred!", response.getMessage());
-        assertEquals(new BigDecimal("400"), cardFrom.getBalance());
-        assertEquals(new BigDecimal("100"), cardTo.getBalance());
-
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        assertEquals(Money.of(new BigDecimal("400")), cardFrom.getBalance());
+        assertEquals(Money.of(new BigDecimal("100")), cardTo.getBalance());
+
+        verify(transactionRepository, times(1)).saveAll(argThat((List<Transaction> legs) -> legs.size() == 2
+                && legs.get(0).getCard() == cardFrom
+                && legs.get(0).getAmount().equals(Money.of(new BigDecimal("-100")))
+                && legs.get(1).getCard() == cardTo
+                && legs.get(1).getAmount().equals(Money.of(new BigDecimal("100")))
+                && legs.get(0).getTransferId().equals(legs.get(1).getTransferId())));
         verify(cardRepository).saveAll(any());
     }
+
+    @Test
+    void testTransferMoney_LocksCardsInIdOrder() {
+        String from = "2222";
+        String to = "1111";
+        BigDecimal amount = new BigDecimal("100");
+        cardTo.setBalance(Money.of(new BigDecimal("300")));
+
+        when(encryptionService.blindIndex(from)).thenReturn(HASH_TO);
+        when(encryptionService.blindIndex(to)).thenReturn(HASH_FROM);
+
+        when(cardRepository.findIdByNumberHash(HASH_TO)).thenReturn(Optional.of(2L));
+        when(cardRepository.findCreditTargetByNumberHash(HASH_FROM)).thenReturn(Optional.of(creditTarget(1L)));
+        when(cardRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(cardFrom));
+        when(cardRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(cardTo));
+
+        var response = cardService.transferMoneyBetweenCards(from, to, amount);
+
+        assertEquals("Money has successfully transferred!", response.getMessage());
+        assertEquals(Money.of(new BigDecimal("200")), cardTo.getBalance());
+        assertEquals(Money.of(new BigDecimal("600")), cardFrom.getBalance());
+
+        InOrder inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).findByIdForUpdate(1L);
+        inOrder.verify(cardRepository).findByIdForUpdate(2L);
+    }
+
+    @Test
+    void testTransferMoneyBatch_PartialFailure() {
+        cardFrom.setNumberHash(HASH_FROM);
+        cardTo.setNumberHash(HASH_TO);
+        when(encryptionService.blindIndex("1111")).thenReturn(HASH_FROM);
+        when(encryptionService.blindIndex("2222")).thenReturn(HASH_TO);
+        when(encryptionService.blindIndex("9999")).thenReturn(new byte[]{9, 9, 9, 9});
+        when(cardRepository.findAllByNumberHashInForUpdate(any())).thenReturn(List.of(cardFrom, cardTo));
+
+        var response = cardService.transferMoneyBatch(List.of(
+                transfer("1111", "2222", "300"),
+                transfer("1111", "9999", "10"),
+                transfer("1111", "2222", "300"),
+                transfer("2222", "1111", "50")));
+
+        @SuppressWarnings("unchecked")
+        List<CardDto.TransferResultDto> results = (List<CardDto.TransferResultDto>) response.getData();
+        assertEquals("2 of 4 transfers completed", response.getMessage());
+        assertEquals(HttpStatus.OK, results.get(0).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, results.get(2).getStatus());
+        assertEquals(HttpStatus.OK, results.get(3).getStatus());
+        assertEquals(Money.of(new BigDecimal("250")), cardFrom.getBalance());
+        assertEquals(Money.of(new BigDecimal("250")), cardTo.getBalance());
+
+        verify(cardRepository, times(1)).findAllByNumberHashInForUpdate(any());
+        verify(transactionRepository).saveAll(argThat((List<Transaction> legs) -> legs.size() == 4));
+        verify(encryptionService, times(3)).blindIndex(anyString());
+    }
+
+    @Test
+    void testTransferMoneyBatch_RejectsOversizedBatch() {
+        List<CardDto.TransferDto> transfers = new ArrayList<>();
+        for (int i = 0; i <= RestConstants.MAX_BATCH_TRANSFERS; i++) {
+            transfers.add(transfer("1111", "2222", "1"));
+        }
+
+        var response = cardService.transferMoneyBatch(transfers);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        verifyNoInteractions(cardRepository, transactionRepository);
+    }
+
+    private CardDto.TransferDto transfer(String from, String to, String amount) {
+        CardDto.TransferDto transfer = new CardDto.TransferDto();
+        transfer.setCardFrom(from);
+        transfer.setCardTo(to);
+        transfer.setAmount(new BigDecimal(amount));
+        return transfer;
+    }
+
+    private static CardRepository.CreditTarget creditTarget(Long id) {
+        return new CardRepository.CreditTarget() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public int getBalanceShards() {
+                return 0;
+            }
+        };
+    }
 }
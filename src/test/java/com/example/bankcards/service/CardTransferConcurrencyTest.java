@@ -0,0 +1,166 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.CardDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+class CardTransferConcurrencyTest {
+
+    private static final int CARDS = 6;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 40;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Concurrent transfers over a few hot cards keep the total balance")
+    void testConcurrentTransfers_NoBalanceDrift() throws Exception {
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(numbers, ids);
+        long transactionsBefore = transactionRepository.count();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                    ApiResponse response = cardService.transferMoneyBetweenCards(numbers.get(from), numbers.get(to), amount);
+                    if (response.getStatus() == HttpStatus.OK) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        pool.shutdown();
+
+        assertNoBalanceDrift(ids);
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, succeeded.get() + rejected.get());
+        assertEquals(2L * succeeded.get(), transactionRepository.count() - transactionsBefore);
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        log.info(String.format("Transfers: %d ok, %d rejected, %d threads, %.2f s, %.1f transfers/s",
+                succeeded.get(), rejected.get(), THREADS, seconds, succeeded.get() / seconds));
+    }
+
+    @Test
+    @DisplayName("Single and batch transfers over the same cards keep the total balance and write two legs each")
+    void testBatchTransfers_NoBalanceDrift() {
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(numbers, ids);
+        int transfers = 400;
+        int batchSize = 100;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CardDto.TransferDto> plan = new ArrayList<>(transfers);
+        for (int i = 0; i < transfers; i++) {
+            int from = random.nextInt(CARDS);
+            CardDto.TransferDto transfer = new CardDto.TransferDto();
+            transfer.setCardFrom(numbers.get(from));
+            transfer.setCardTo(numbers.get((from + 1 + random.nextInt(CARDS - 1)) % CARDS));
+            transfer.setAmount(BigDecimal.valueOf(random.nextInt(1, 5000), 2));
+            plan.add(transfer);
+        }
+        long transactionsBefore = transactionRepository.count();
+        int succeeded = 0;
+
+        for (CardDto.TransferDto transfer : plan) {
+            ApiResponse response = cardService.transferMoneyBetweenCards(
+                    transfer.getCardFrom(), transfer.getCardTo(), transfer.getAmount());
+            if (response.getStatus() == HttpStatus.OK) succeeded++;
+            else assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+        }
+        for (int i = 0; i < transfers; i += batchSize) {
+            ApiResponse response = cardService.transferMoneyBatch(plan.subList(i, i + batchSize));
+            assertEquals(HttpStatus.OK, response.getStatus());
+            List<?> results = (List<?>) response.getData();
+            assertEquals(batchSize, results.size());
+            for (Object result : results) {
+                if (((CardDto.TransferResultDto) result).getStatus() == HttpStatus.OK) succeeded++;
+            }
+        }
+
+        assertTrue(succeeded > 0);
+        assertNoBalanceDrift(ids);
+        assertEquals(2L * succeeded, transactionRepository.count() - transactionsBefore);
+    }
+
+    private void createCards(List<String> numbers, List<Long> ids) {
+        User owner = testCards.owner("Stress Owner");
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            ids.add(cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build()).getId());
+            numbers.add(number);
+        }
+    }
+
+    private void assertNoBalanceDrift(List<Long> ids) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Card card : cardRepository.findAllById(ids)) {
+            assertTrue(card.getBalance().signum() >= 0, "Balance went negative on card " + card.getId());
+            //the ledger legs of every card explain its balance exactly
+            BigDecimal legs = transactionRepository.sumAmountByCardIdBefore(card.getId(), LocalDateTime.now().plusDays(1));
+            assertEquals(0, INITIAL_BALANCE.add(legs).compareTo(card.getBalance().toBigDecimal()));
+            total = total.add(card.getBalance().toBigDecimal());
+        }
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+    }
+}
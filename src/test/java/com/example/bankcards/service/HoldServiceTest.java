@@ -0,0 +1,201 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.HoldDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardHold;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.HoldStatus;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.repository.CardHoldRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.impl.HoldServiceImpl;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"bank.hold.ttl-seconds=2", "bank.hold.expiry.tick-ms=50"})
+@ActiveProfiles("test")
+class HoldServiceTest {
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private HoldServiceImpl holdServiceImpl;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private CardHoldRepository cardHoldRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private EncryptionService encryptionService;
+
+    @AfterEach
+    void clearSession() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Held funds cannot be spent, a partial capture moves only the captured amount")
+    void testAuthorizeAndCapture() {
+        String[] numbers = createCards();
+        Card from = card(numbers[0]);
+
+        HoldDto hold = (HoldDto) ok(holdService.authorize(numbers[0], numbers[1], new BigDecimal("80.00"))).getData();
+        Card held = cardRepository.findById(from.getId()).orElseThrow();
+        assertEquals(Money.of(new BigDecimal("100.00")), held.getTotalBalance());
+        assertEquals(Money.of(new BigDecimal("20.00")), held.getAvailableBalance());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                cardService.transferMoneyBetweenCards(numbers[0], numbers[1], new BigDecimal("30.00")).getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                holdService.authorize(numbers[0], numbers[1], new BigDecimal("30.00")).getStatus());
+        assertEquals(HttpStatus.BAD_REQUEST, holdService.capture(hold.getId(), new BigDecimal("80.01")).getStatus());
+
+        HoldDto captured = (HoldDto) ok(holdService.capture(hold.getId(), new BigDecimal("50.00"))).getData();
+
+        assertEquals(HoldStatus.CAPTURED, captured.getStatus());
+        assertEquals(0, new BigDecimal("50.00").compareTo(captured.getCapturedAmount()));
+        Card after = cardRepository.findById(from.getId()).orElseThrow();
+        assertEquals(Money.of(new BigDecimal("50.00")), after.getBalance());
+        assertEquals(Money.ZERO, after.getHeldAmount());
+        assertEquals(Money.of(new BigDecimal("150.00")), card(numbers[1]).getBalance());
+        assertEquals(HttpStatus.CONFLICT, holdService.capture(hold.getId(), null).getStatus());
+        assertEquals(HttpStatus.CONFLICT, holdService.release(hold.getId()).getStatus());
+        assertLedgerMatches(numbers);
+    }
+
+    @Test
+    @DisplayName("Release frees the held funds without touching the ledger")
+    void testRelease() {
+        String[] numbers = createCards();
+        long transactionsBefore = transactionRepository.count();
+        HoldDto hold = (HoldDto) ok(holdService.authorize(numbers[0], numbers[1], new BigDecimal("100.00"))).getData();
+
+        assertEquals(HoldStatus.RELEASED, ((HoldDto) ok(holdService.release(hold.getId())).getData()).getStatus());
+
+        assertEquals(Money.ZERO, card(numbers[0]).getHeldAmount());
+        assertEquals(transactionsBefore, transactionRepository.count());
+        assertEquals(HttpStatus.OK, cardService.transferMoneyBetweenCards(numbers[0], numbers[1], new BigDecimal("100.00")).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND, holdService.release(Long.MAX_VALUE).getStatus());
+    }
+
+    @Test
+    @DisplayName("An uncaptured hold expires on its deadline and its funds become available")
+    void testExpiry() throws InterruptedException {
+        String[] numbers = createCards();
+        HoldDto hold = (HoldDto) ok(holdService.authorize(numbers[0], numbers[1], new BigDecimal("60.00"))).getData();
+
+        assertEquals(HoldStatus.EXPIRED, awaitClosed(hold.getId()));
+        assertEquals(Money.ZERO, card(numbers[0]).getHeldAmount());
+        assertEquals(HttpStatus.CONFLICT, holdService.capture(hold.getId(), null).getStatus());
+    }
+
+    @Test
+    @DisplayName("Open holds written before startup are loaded into the wheel and expire")
+    void testLoadOpenHolds() throws InterruptedException {
+        String[] numbers = createCards();
+        Card from = card(numbers[0]);
+        from.setHeldAmount(Money.of(new BigDecimal("40.00")));
+        cardRepository.save(from);
+        CardHold hold = cardHoldRepository.save(CardHold.builder()
+                .cardId(from.getId())
+                .targetCardId(card(numbers[1]).getId())
+                .amount(Money.of(new BigDecimal("40.00")))
+                .status(HoldStatus.AUTHORIZED)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+
+        holdServiceImpl.loadOpenHolds();
+
+        assertEquals(HoldStatus.EXPIRED, awaitClosed(hold.getId()));
+        assertEquals(Money.ZERO, card(numbers[0]).getHeldAmount());
+    }
+
+    @Test
+    @DisplayName("Another user's hold cannot be read, captured or released; an admin can read it")
+    void testOtherUser_Refused() {
+        String[] numbers = createCards();
+        HoldDto hold = (HoldDto) ok(holdService.authorize(numbers[0], numbers[1], new BigDecimal("70.00"))).getData();
+
+        login(testCards.owner("Hold Stranger"));
+        assertEquals(HttpStatus.NOT_FOUND, holdService.getHold(hold.getId()).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND, holdService.capture(hold.getId(), null).getStatus());
+        assertEquals(HttpStatus.NOT_FOUND, holdService.release(hold.getId()).getStatus());
+        assertEquals(HoldStatus.AUTHORIZED, cardHoldRepository.findById(hold.getId()).orElseThrow().getStatus());
+        assertEquals(Money.of(new BigDecimal("70.00")), card(numbers[0]).getHeldAmount());
+
+        login(User.builder().fullName("Hold Admin").role(Role.ADMIN).build());
+        assertEquals(HttpStatus.OK, holdService.getHold(hold.getId()).getStatus());
+    }
+
+    private void login(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private HoldStatus awaitClosed(Long holdId) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        HoldStatus status = HoldStatus.AUTHORIZED;
+        while (status == HoldStatus.AUTHORIZED && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            status = cardHoldRepository.findById(holdId).orElseThrow().getStatus();
+        }
+        return status;
+    }
+
+    private ApiResponse ok(ApiResponse response) {
+        assertEquals(HttpStatus.OK, response.getStatus(), response.getMessage());
+        return response;
+    }
+
+    private Card card(String number) {
+        return cardRepository.findByNumberHash(encryptionService.blindIndex(number)).orElseThrow();
+    }
+
+    private void assertLedgerMatches(String[] numbers) {
+        for (String number : numbers) {
+            Card card = card(number);
+            BigDecimal legs = transactionRepository.sumAmountByCardIdBefore(card.getId(), LocalDateTime.now().plusDays(1));
+            assertEquals(0, new BigDecimal("100.00").add(legs).compareTo(card.getBalance().toBigDecimal()));
+        }
+    }
+
+    //the cards belong to a fresh owner, who is logged in afterwards
+    private String[] createCards() {
+        User owner = testCards.owner("Hold Owner");
+        login(owner);
+        String[] numbers = new String[2];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = testCards.number();
+            cardRepository.save(testCards.card(owner, numbers[i]).balance(Money.of(new BigDecimal("100.00"))).build());
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.BadRequestException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.impl.IdempotencyServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(idempotencyRecordRepository, objectMapper,
+                new SimpleMeterRegistry(), 100, 60, 24);
+    }
+
+    @Test
+    @DisplayName("Should run once and replay the stored response from memory")
+    void testExecute_ReplaysFromHotTier() {
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(anyString(), any())).thenReturn(Optional.empty());
+        AtomicInteger runs = new AtomicInteger();
+        Function<String, ApiResponse> action = scopedKey -> {
+            runs.incrementAndGet();
+            return idempotencyService.store(scopedKey, ok("Money has successfully transferred!"));
+        };
+
+        ApiResponse first = idempotencyService.execute("key-1", "transfer-money", "a>b|10", action);
+        ApiResponse second = idempotencyService.execute("key-1", "transfer-money", "a>b|10", action);
+
+        assertEquals(1, runs.get());
+        assertSame(first, second);
+        verify(idempotencyRecordRepository, times(1)).save(any(IdempotencyRecord.class));
+        verify(idempotencyRecordRepository, times(1)).findByIdempotencyKeyAndExpiresAtAfter(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should replay the durable record without running the action")
+    void testExecute_ReplaysFromTable() throws Exception {
+        ApiResponse stored = ok("Card successfully filled with 10");
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(anyString(), any())).thenReturn(Optional.empty());
+        idempotencyService.execute("key-2", "fill-card", "a|10", scopedKey -> idempotencyService.store(scopedKey, stored));
+        verify(idempotencyRecordRepository).save(captor.capture());
+
+        //a fresh node has an empty hot tier and only sees the table
+        IdempotencyServiceImpl otherNode = new IdempotencyServiceImpl(idempotencyRecordRepository, objectMapper,
+                new SimpleMeterRegistry(), 100, 60, 24);
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(eq(captor.getValue().getIdempotencyKey()), any()))
+                .thenReturn(Optional.of(captor.getValue()));
+
+        ApiResponse replayed = otherNode.execute("key-2", "fill-card", "a|10", scopedKey -> fail("must not run"));
+
+        assertEquals(HttpStatus.OK, replayed.getStatus());
+        assertEquals("Card successfully filled with 10", replayed.getMessage());
+    }
+
+    @Test
+    @DisplayName("Should run again for a key that expired but was not purged yet, replacing its row")
+    void testExecute_ExpiredKeyRunsAgain() {
+        IdempotencyRecord expired = IdempotencyRecord.builder()
+                .idempotencyKey("fill-card:anonymous:key-5")
+                .requestHash("old")
+                .response("{}")
+                .createdAt(LocalDateTime.now().minusHours(25))
+                .expiresAt(LocalDateTime.now().minusHours(1))
+                .build();
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(eq(expired.getIdempotencyKey()), any()))
+                .thenAnswer(invocation -> Optional.of(expired)
+                        .filter(record -> record.getExpiresAt().isAfter(invocation.getArgument(1))));
+        AtomicInteger runs = new AtomicInteger();
+
+        ApiResponse response = idempotencyService.execute("key-5", "fill-card", "a|10", scopedKey -> {
+            runs.incrementAndGet();
+            return idempotencyService.store(scopedKey, ok("done"));
+        });
+
+        assertEquals(1, runs.get());
+        assertEquals("done", response.getMessage());
+        InOrder inOrder = inOrder(idempotencyRecordRepository);
+        inOrder.verify(idempotencyRecordRepository).deleteExpired(eq(List.of(expired.getIdempotencyKey())), any());
+        inOrder.verify(idempotencyRecordRepository).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("Should refuse a key reused with different parameters")
+    void testExecute_FingerprintMismatch() {
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(anyString(), any())).thenReturn(Optional.empty());
+        idempotencyService.execute("key-3", "fill-card", "a|10", scopedKey -> idempotencyService.store(scopedKey, ok("done")));
+
+        ApiResponse response = idempotencyService.execute("key-3", "fill-card", "a|20", scopedKey -> fail("must not run"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should coalesce concurrent duplicates into one execution")
+    void testExecute_CoalescesConcurrentDuplicates() throws Exception {
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(anyString(), any())).thenReturn(Optional.empty());
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, ApiResponse> action = scopedKey -> {
+            runs.incrementAndGet();
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return idempotencyService.store(scopedKey, ok("done"));
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<ApiResponse>> futures = new ArrayList<>();
+        futures.add(pool.submit(() -> idempotencyService.execute("key-4", "transfer-money", "a>b|1", action)));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 7; i++) {
+            futures.add(pool.submit(() -> idempotencyService.execute("key-4", "transfer-money", "a>b|1", action)));
+        }
+        release.countDown();
+        for (Future<ApiResponse> future : futures) {
+            assertEquals("done", future.get(5, TimeUnit.SECONDS).getMessage());
+        }
+        pool.shutdown();
+
+        assertEquals(1, runs.get());
+        verify(idempotencyRecordRepository, times(1)).save(any(IdempotencyRecord.class));
+    }
+
+    @Test
+    @DisplayName("Should reject an over-long key")
+    void testExecute_KeyTooLong() {
+        assertThrows(BadRequestException.class, () ->
+                idempotencyService.execute("k".repeat(101), "fill-card", "a|1", scopedKey -> ok("done")));
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    private static ApiResponse ok(String message) {
+        return ApiResponse.builder()
+                .status(HttpStatus.OK)
+                .message(message)
+                .build();
+    }
+}
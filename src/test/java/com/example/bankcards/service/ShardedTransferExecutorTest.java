@@ -0,0 +1,131 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.impl.ShardedTransferExecutor;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"bank.transfer.executor.enabled=true", "bank.transfer.executor.shards=4"})
+@ActiveProfiles("test")
+class ShardedTransferExecutorTest {
+
+    private static final int CARDS = 6;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 40;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private ShardedTransferExecutor transferExecutor;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Test
+    @DisplayName("Same-shard and cross-shard transfers on the shard executor keep every balance")
+    void testShardedExecutor_NoBalanceDrift() throws Exception {
+        assertTrue(transferExecutor.isEnabled());
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(numbers, ids);
+        assertTrue(ids.stream().map(transferExecutor::shardOf).distinct().count() > 1);
+        long transactionsBefore = transactionRepository.count();
+
+        Result result = run(numbers);
+
+        assertNoBalanceDrift(ids);
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, result.succeeded + result.rejected);
+        assertEquals(2L * result.succeeded, transactionRepository.count() - transactionsBefore);
+        assertEquals(HttpStatus.OK, cardService.fillCard(numbers.get(0), BigDecimal.TEN).getStatus());
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferMoneyBetweenCards(numbers.get(0), numbers.get(0), BigDecimal.ONE));
+    }
+
+    private Result run(List<String> numbers) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                    ApiResponse response = cardService.transferMoneyBetweenCards(numbers.get(from), numbers.get(to), amount);
+                    if (response.getStatus() == HttpStatus.OK) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        return new Result(succeeded.get(), rejected.get());
+    }
+
+    private void createCards(List<String> numbers, List<Long> ids) {
+        User owner = testCards.owner("Shard Executor Owner");
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            ids.add(cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build()).getId());
+            numbers.add(number);
+        }
+    }
+
+    private void assertNoBalanceDrift(List<Long> ids) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Card card : cardRepository.findAllById(ids)) {
+            assertTrue(card.getBalance().signum() >= 0, "Balance went negative on card " + card.getId());
+            BigDecimal legs = transactionRepository.sumAmountByCardIdBefore(card.getId(), LocalDateTime.now().plusDays(1));
+            assertEquals(0, INITIAL_BALANCE.add(legs).compareTo(card.getBalance().toBigDecimal()));
+            total = total.add(card.getBalance().toBigDecimal());
+        }
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+    }
+
+    private record Result(int succeeded, int rejected) {
+    }
+}
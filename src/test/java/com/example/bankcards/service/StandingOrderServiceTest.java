@@ -0,0 +1,89 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.dto.StandingOrderDto;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.StandingOrderFrequency;
+import com.example.bankcards.entity.enums.StandingOrderStatus;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.StandingOrderRepository;
+import com.example.bankcards.support.TestCards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StandingOrderServiceTest {
+
+    @Autowired
+    private StandingOrderService standingOrderService;
+
+    @Autowired
+    private StandingOrderRepository standingOrderRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @AfterEach
+    void clearSession() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Orders are created from the caller's own card only and cancelled by their creator or an admin")
+    void testStandingOrders_OwnerOnly() {
+        User alice = testCards.owner("Orders Alice");
+        User bob = testCards.owner("Orders Bob");
+        String aliceCard = testCards.number();
+        String bobCard = testCards.number();
+        cardRepository.save(testCards.card(alice, aliceCard).build());
+        cardRepository.save(testCards.card(bob, bobCard).build());
+
+        login(bob);
+        assertEquals(HttpStatus.FORBIDDEN, standingOrderService.createStandingOrder(order(aliceCard, bobCard)).getStatus());
+
+        login(alice);
+        ApiResponse created = standingOrderService.createStandingOrder(order(aliceCard, bobCard));
+        assertEquals(HttpStatus.OK, created.getStatus());
+        Long id = ((StandingOrderDto) created.getData()).getId();
+
+        login(bob);
+        assertEquals(HttpStatus.NOT_FOUND, standingOrderService.cancelStandingOrder(id).getStatus());
+        assertEquals(StandingOrderStatus.ACTIVE, standingOrderRepository.findById(id).orElseThrow().getStatus());
+
+        login(User.builder().fullName("Orders Admin").role(Role.ADMIN).build());
+        assertEquals(HttpStatus.OK, standingOrderService.cancelStandingOrder(id).getStatus());
+        assertEquals(StandingOrderStatus.CANCELLED, standingOrderRepository.findById(id).orElseThrow().getStatus());
+    }
+
+    private void login(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    private StandingOrderDto.CreateStandingOrderDto order(String from, String to) {
+        StandingOrderDto.CreateStandingOrderDto dto = new StandingOrderDto.CreateStandingOrderDto();
+        dto.setCardFrom(from);
+        dto.setCardTo(to);
+        dto.setAmount(BigDecimal.TEN);
+        dto.setFrequency(StandingOrderFrequency.DAILY);
+        dto.setFirstRunAt(LocalDateTime.now().plusDays(1));
+        return dto;
+    }
+}
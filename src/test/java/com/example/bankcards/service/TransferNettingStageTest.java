@@ -0,0 +1,148 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.ApiResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.TransactionRepository;
+import com.example.bankcards.service.impl.TransferNettingStage;
+import com.example.bankcards.support.TestCards;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"bank.transfer.netting.enabled=true", "bank.transfer.netting.tick-ms=2"})
+@ActiveProfiles("test")
+class TransferNettingStageTest {
+
+    private static final int CARDS = 6;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 40;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private TransferNettingStage transferNetting;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TestCards testCards;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Netted transfers keep every balance and write fewer card updates than transfers")
+    void testNetting_NoBalanceDriftAndFewerUpdates() throws Exception {
+        assertTrue(transferNetting.isEnabled());
+        List<String> numbers = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        createCards(numbers, ids);
+        long transactionsBefore = transactionRepository.count();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+
+        Result result = run(numbers);
+
+        statistics.setStatisticsEnabled(false);
+        assertNoBalanceDrift(ids);
+        assertEquals(THREADS * TRANSFERS_PER_THREAD, result.succeeded + result.rejected);
+        assertEquals(2L * result.succeeded, transactionRepository.count() - transactionsBefore);
+        //one transfer on its own would update both of its cards
+        assertTrue(statistics.getEntityUpdateCount() < 2L * result.succeeded,
+                "Expected netted card updates, got " + statistics.getEntityUpdateCount()
+                        + " for " + result.succeeded + " transfers");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> cardService.transferMoneyBetweenCards(numbers.get(0), numbers.get(0), BigDecimal.ONE));
+        ApiResponse overdraft = cardService.transferMoneyBetweenCards(numbers.get(0), numbers.get(1),
+                INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)));
+        assertEquals(HttpStatus.BAD_REQUEST, overdraft.getStatus());
+        assertNoBalanceDrift(ids);
+    }
+
+    private Result run(List<String> numbers) throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(CARDS);
+                    int to = (from + 1 + random.nextInt(CARDS - 1)) % CARDS;
+                    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 5000), 2);
+                    ApiResponse response = cardService.transferMoneyBetweenCards(numbers.get(from), numbers.get(to), amount);
+                    if (response.getStatus() == HttpStatus.OK) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        return new Result(succeeded.get(), rejected.get());
+    }
+
+    private void createCards(List<String> numbers, List<Long> ids) {
+        User owner = testCards.owner("Netting Owner");
+        for (int i = 0; i < CARDS; i++) {
+            String number = testCards.number();
+            ids.add(cardRepository.save(testCards.card(owner, number).balance(Money.of(INITIAL_BALANCE)).build()).getId());
+            numbers.add(number);
+        }
+    }
+
+    private void assertNoBalanceDrift(List<Long> ids) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Card card : cardRepository.findAllById(ids)) {
+            assertTrue(card.getBalance().signum() >= 0, "Balance went negative on card " + card.getId());
+            BigDecimal legs = transactionRepository.sumAmountByCardIdBefore(card.getId(), LocalDateTime.now().plusDays(1));
+            assertEquals(0, INITIAL_BALANCE.add(legs).compareTo(card.getBalance().toBigDecimal()));
+            total = total.add(card.getBalance().toBigDecimal());
+        }
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+    }
+
+    private record Result(int succeeded, int rejected) {
+    }
+}
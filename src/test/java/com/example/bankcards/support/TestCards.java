@@ -0,0 +1,59 @@
+package com.example.bankcards.support;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.entity.enums.UserStatus;
+import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.util.EncryptionService;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Card and owner fixtures for the integration tests. {@link #card(User, String)} returns a builder with the
+ * encrypted number, blind index and mask already filled in, so a test only sets what it cares about.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestCards {
+
+    private final UserRepository userRepository;
+    private final EncryptionService encryptionService;
+
+    //saves an active user, the username is derived from the name and made unique
+    public User owner(String fullName) {
+        return userRepository.save(User.builder()
+                .fullName(fullName)
+                .username(fullName.toLowerCase(Locale.ROOT).replace(' ', '-') + "-" + UUID.randomUUID())
+                .role(Role.USER)
+                .userStatus(UserStatus.ACTIVE)
+                .build());
+    }
+
+    public String number() {
+        return encryptionService.generateCardNumber();
+    }
+
+    //an active, empty card expiring in five years; not saved
+    public Card.CardBuilder card(User owner, String number) {
+        return Card.builder()
+                .owner(owner)
+                .encryptedNumber(encryptionService.encrypt(number))
+                .numberHash(encryptionService.blindIndex(number))
+                .lastFourDigits(encryptionService.maskNumber(number))
+                .ownerName(owner.getFullName())
+                .status(CardStatus.ACTIVE)
+                .expiryDate(LocalDate.now().plusYears(5))
+                .balance(Money.ZERO);
+    }
+
+    public Card.CardBuilder card(User owner) {
+        return card(owner, number());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionServiceTest {
+
+    private final EncryptionService encryptionService = new EncryptionService();
+
+    @Test
+    @DisplayName("Should encrypt with AES-GCM and decrypt back")
+    void testEncrypt_GcmRoundTrip() {
+        String cardNumber = "1234567890123452";
+
+        String first = encryptionService.encrypt(cardNumber);
+        String second = encryptionService.encrypt(cardNumber);
+
+        assertTrue(first.startsWith(EncryptionService.GCM_PREFIX));
+        assertNotEquals(first, second);
+        assertEquals(cardNumber, encryptionService.decrypt(first));
+        assertEquals(cardNumber, encryptionService.decrypt(second));
+    }
+
+    @Test
+    @DisplayName("Should decrypt values written in the legacy AES/ECB format")
+    void testDecrypt_LegacyFormat() throws Exception {
+        String cardNumber = "1234567890123452";
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec("BankRestApisAndI".getBytes(StandardCharsets.UTF_8), "AES"));
+        String legacy = Base64.getEncoder().encodeToString(cipher.doFinal(cardNumber.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(cardNumber, encryptionService.decrypt(legacy));
+    }
+
+    @Test
+    @DisplayName("Should reject a tampered GCM value")
+    void testDecrypt_TamperedGcm() {
+        String encrypted = encryptionService.encrypt("1234567890123452");
+        byte[] raw = Base64.getDecoder().decode(encrypted.substring(EncryptionService.GCM_PREFIX.length()));
+        raw[raw.length - 1] ^= 1;
+        String tampered = EncryptionService.GCM_PREFIX + Base64.getEncoder().encodeToString(raw);
+
+        assertThrows(IllegalStateException.class, () -> encryptionService.decrypt(tampered));
+    }
+
+    @Test
+    @DisplayName("Should produce a stable 32-byte blind index")
+    void testBlindIndex_Stable() {
+        byte[] first = encryptionService.blindIndex("1234567890123452");
+        byte[] second = encryptionService.blindIndex("1234567890123452");
+
+        assertEquals(32, first.length);
+        assertArrayEquals(first, second);
+        assertFalse(java.util.Arrays.equals(first, encryptionService.blindIndex("1234567890123460")));
+    }
+}
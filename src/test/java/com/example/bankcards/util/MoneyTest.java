@@ -0,0 +1,67 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.entity.converter.MoneyConverter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    @DisplayName("Should convert decimal amounts to minor units and back")
+    void testOf_RoundTrip() {
+        Money money = Money.of(new BigDecimal("12.34"));
+
+        assertEquals(1234, money.minorUnits());
+        assertEquals(new BigDecimal("12.34"), money.toBigDecimal());
+        assertEquals(Money.of(new BigDecimal("12.3400")), money);
+        assertEquals(Money.of(new BigDecimal("5")), Money.ofMinor(500));
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+    }
+
+    @Test
+    @DisplayName("Should reject amounts with more than two decimals")
+    void testOf_TooManyDecimals() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    @DisplayName("Should throw instead of wrapping on overflow")
+    void testArithmetic_Overflow() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).negate());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20")));
+    }
+
+    @Test
+    @DisplayName("Should add, subtract and compare in minor units")
+    void testArithmetic_Compare() {
+        Money balance = Money.ofMinor(10_000);
+        Money amount = Money.ofMinor(2_550);
+
+        assertEquals(Money.ofMinor(7_450), balance.minus(amount));
+        assertEquals(Money.ofMinor(12_550), balance.plus(amount));
+        assertTrue(amount.isLessThan(balance));
+        assertFalse(balance.isLessThan(amount));
+        assertTrue(amount.isPositive());
+        assertEquals(-1, amount.negate().signum());
+        assertSame(Money.ZERO, amount.minus(amount));
+    }
+
+    @Test
+    @DisplayName("Should map money to NUMERIC values and back")
+    void testConverter_RoundTrip() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertEquals(new BigDecimal("99.90"), converter.convertToDatabaseColumn(Money.ofMinor(9_990)));
+        assertEquals(Money.ofMinor(9_990), converter.convertToEntityAttribute(new BigDecimal("99.90")));
+        assertNull(converter.convertToDatabaseColumn(null));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    @Test
+    @DisplayName("Should round the capacity up and reject offers when full")
+    void testOffer_Full() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(3);
+
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4));
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+    }
+
+    @Test
+    @DisplayName("Should hand elements to the consumer in offer order")
+    void testPoll_Fifo() {
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(8);
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 6; i++) {
+                ring.offer(round * 10 + i);
+            }
+            for (int i = 0; i < 6; i++) {
+                assertEquals(round * 10 + i, ring.poll());
+            }
+        }
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should lose nothing with many producers and one consumer")
+    void testOffer_ManyProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<Integer> ring = new MpscRingBuffer<>(256);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+        Set<Integer> seen = new HashSet<>();
+        int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        while (seen.size() < producers * perProducer) {
+            Integer element = ring.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(seen.add(element));
+            //each producer's own elements arrive in the order it offered them
+            int producer = element / perProducer;
+            assertTrue(element > lastPerProducer[producer]);
+            lastPerProducer[producer] = element;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
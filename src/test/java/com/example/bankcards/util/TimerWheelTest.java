@@ -0,0 +1,72 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    @DisplayName("Should fire timeouts on their tick, across every level of the wheel")
+    void testAdvance_FiresOnDeadline() {
+        TimerWheel<Long> wheel = new TimerWheel<>(10, 0);
+        //one per level plus a deadline beyond the span of the wheel
+        long[] deadlines = {10, 640, 40_960, 2_621_440, 200_000_000, 0};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        assertEquals(List.of(0L), wheel.advance(0));
+        for (long deadline : new long[]{10, 640, 40_960, 2_621_440, 200_000_000}) {
+            assertTrue(wheel.advance(deadline - 10).isEmpty(), "fired early: " + deadline);
+            assertEquals(List.of(deadline), wheel.advance(deadline));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should fire random deadlines in order, each exactly once")
+    void testAdvance_RandomDeadlines() {
+        TimerWheel<Long> wheel = new TimerWheel<>(1, 1_000);
+        Random random = new Random(42);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = 1_000 + random.nextInt(300_000);
+            wheel.schedule(deadline, deadline);
+            expected.add(deadline);
+        }
+        expected.sort(null);
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 1_000; now <= 301_000; now += 1 + random.nextInt(500)) {
+            for (Long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now, "fired early: " + deadline + " at " + now);
+                assertTrue(now - deadline < 501, "fired late: " + deadline + " at " + now);
+                fired.add(deadline);
+            }
+        }
+        fired.addAll(wheel.advance(301_000));
+        fired.sort(null);
+        assertEquals(expected, fired);
+    }
+
+    @Test
+    @DisplayName("Should not fire a cancelled timeout and fire a past deadline on the next advance")
+    void testCancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 10_000);
+        TimerWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 20_000);
+        wheel.schedule("kept", 20_000);
+        wheel.schedule("late", 5_000);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+        assertEquals(List.of("late"), wheel.advance(10_000));
+        assertEquals(List.of("kept"), wheel.advance(30_000));
+        assertEquals(0, wheel.size());
+    }
+}